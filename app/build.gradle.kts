@@ -30,6 +30,10 @@ android {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
     }
+    testOptions {
+        // Local unit tests run against a stub android.jar; let calls such as Log.w return defaults
+        unitTests.isReturnDefaultValues = true
+    }
 }
 
 dependencies {
@@ -58,6 +62,8 @@ dependencies {
 
     // Gemini AI dependency
     implementation("com.google.ai.client.generativeai:generativeai:0.2.1")
+    // Publisher type returned by generateContentStream
+    implementation("org.reactivestreams:reactive-streams:1.0.4")
 
     // Guava dependency for ListenableFuture
     implementation("com.google.guava:guava:32.1.3-android")
@@ -17,12 +17,17 @@ import com.google.android.material.switchmaterial.SwitchMaterial;
 import com.google.android.material.textfield.TextInputEditText;
 
 public class AddProductActivity extends AppCompatActivity {
+    // Id of the product to edit; also the result, the id of the product that was saved
+    public static final String EXTRA_PRODUCT_ID = "productId";
+
     private TextInputEditText nameInput, descriptionInput, priceInput, stockInput;
     private AutoCompleteTextView categoryInput;
     private SwitchMaterial availableSwitch;
     private MaterialButton saveButton;
     private ProductService productService;
     private String productId;
+    // Product being edited, tracks which fields the form changed
+    private Product loadedProduct;
 
     private final String[] categories = {
         "Shampoo",
@@ -53,7 +58,7 @@ public class AddProductActivity extends AppCompatActivity {
         setupSaveButton();
 
         // Check if we're editing an existing product
-        productId = getIntent().getStringExtra("productId");
+        productId = getIntent().getStringExtra(EXTRA_PRODUCT_ID);
         if (productId != null) {
             loadProductData();
         }
@@ -86,8 +91,9 @@ public class AddProductActivity extends AppCompatActivity {
         productService.getProductById(productId)
             .addOnSuccessListener(documentSnapshot -> {
                 if (documentSnapshot.exists()) {
-                    Product product = documentSnapshot.toObject(Product.class);
+                    Product product = ProductService.toProduct(documentSnapshot);
                     if (product != null) {
+                        loadedProduct = product;
                         // Populate the form with product data
                         nameInput.setText(product.getName());
                         descriptionInput.setText(product.getDescription());
@@ -113,24 +119,31 @@ public class AddProductActivity extends AppCompatActivity {
             return;
         }
 
-        // Create product object
-        Product product = new Product(
-            productId, // Will be null for new products
-            nameInput.getText().toString().trim(),
-            descriptionInput.getText().toString().trim(),
-            Double.parseDouble(priceInput.getText().toString().trim()),
-            Integer.parseInt(stockInput.getText().toString().trim()),
-            categoryInput.getText().toString().trim(),
-            "", // Empty brand
-            "", // Empty image URL
-            availableSwitch.isChecked()
-        );
-
         if (productId != null) {
+            if (loadedProduct == null) {
+                Toast.makeText(this, "Product is still loading", Toast.LENGTH_SHORT).show();
+                return;
+            }
+
+            // Apply the form to the loaded product so only edited fields are written
+            loadedProduct.setName(nameInput.getText().toString().trim());
+            loadedProduct.setDescription(descriptionInput.getText().toString().trim());
+            loadedProduct.setPrice(Double.parseDouble(priceInput.getText().toString().trim()));
+            loadedProduct.setStockAmount(Integer.parseInt(stockInput.getText().toString().trim()));
+            loadedProduct.setCategory(categoryInput.getText().toString().trim());
+            loadedProduct.setAvailable(availableSwitch.isChecked());
+
+            if (!loadedProduct.hasChanges()) {
+                Toast.makeText(this, "No changes to save", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+
             // Update existing product
-            productService.updateProduct(productId, product)
+            productService.updateProduct(productId, loadedProduct)
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Product updated successfully", Toast.LENGTH_SHORT).show();
+                    setResult(RESULT_OK, new Intent().putExtra(EXTRA_PRODUCT_ID, productId));
                     finish();
                 })
                 .addOnFailureListener(e -> {
@@ -138,9 +151,21 @@ public class AddProductActivity extends AppCompatActivity {
                 });
         } else {
             // Add new product
+            Product product = new Product(
+                null,
+                nameInput.getText().toString().trim(),
+                descriptionInput.getText().toString().trim(),
+                Double.parseDouble(priceInput.getText().toString().trim()),
+                Integer.parseInt(stockInput.getText().toString().trim()),
+                categoryInput.getText().toString().trim(),
+                "", // Empty brand
+                "", // Empty image URL
+                availableSwitch.isChecked()
+            );
             productService.addProduct(product)
                 .addOnSuccessListener(documentReference -> {
                     Toast.makeText(this, "Product added successfully", Toast.LENGTH_SHORT).show();
+                    setResult(RESULT_OK, new Intent().putExtra(EXTRA_PRODUCT_ID, documentReference.getId()));
                     finish();
                 })
                 .addOnFailureListener(e -> {
@@ -1,56 +1,195 @@
 package com.example.hairstyle_consultant;
 
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LongSparseArray;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.LinearLayout;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 public class ChatAdapter extends RecyclerView.Adapter<ChatAdapter.MessageViewHolder> {
-    private List<ChatMessage> messages;
+    private static final DiffUtil.ItemCallback<ChatMessage> DIFF_CALLBACK = new DiffUtil.ItemCallback<ChatMessage>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return oldItem.getId() == newItem.getId();
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull ChatMessage oldItem, @NonNull ChatMessage newItem) {
+            return oldItem.isUser() == newItem.isUser()
+                    && Objects.equals(oldItem.getMessage(), newItem.getMessage());
+        }
+    };
+
+    // Rows from the top at which older history starts loading
+    private static final int PREFETCH_DISTANCE = 5;
+    private static final int VIEW_TYPE_USER = 0;
+    private static final int VIEW_TYPE_ASSISTANT = 1;
+    // Shorter messages lay out quickly enough on the main thread
+    private static final int PRECOMPUTE_MIN_LENGTH = 200;
+    private static final int MAX_PRECOMPUTED = 256;
+    private static final Object PAYLOAD_PRECOMPUTED = new Object();
 
-    public ChatAdapter(List<ChatMessage> messages) {
-        this.messages = messages;
+    private static class PrecomputedLayout {
+        final String source;
+        final PrecomputedTextCompat text;
+
+        PrecomputedLayout(String source, PrecomputedTextCompat text) {
+            this.source = source;
+            this.text = text;
+        }
+    }
+
+    private final AsyncListDiffer<ChatMessage> differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                    .setBackgroundThreadExecutor(HairStyleApplication.getExecutors().cpu())
+                    .build());
+
+    private Runnable onNearTopListener;
+    // Text layout per message id, main thread only. Kept in the order the rows were last bound
+    // or laid out, so the least recently shown are evicted first; a message's id says nothing
+    // about its age, since older history pages are created after the current conversation.
+    private final Map<Long, PrecomputedLayout> precomputedText =
+            new LinkedHashMap<Long, PrecomputedLayout>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, PrecomputedLayout> eldest) {
+                    return size() > MAX_PRECOMPUTED;
+                }
+            };
+    // Message id -> text being laid out, main thread only
+    private final LongSparseArray<String> precomputing = new LongSparseArray<>();
+    private final PrecomputedTextCompat.Params[] textParams = new PrecomputedTextCompat.Params[2];
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    public ChatAdapter() {
+    }
+
+    /**
+     * @param listener Called when a row near the top of the list is bound, i.e. when the user
+     *                 scrolls back towards the oldest loaded message
+     */
+    public void setOnNearTopListener(Runnable listener) {
+        this.onNearTopListener = listener;
+    }
+
+    /**
+     * Show a new list of messages. The diff is computed off the main thread, so appending one
+     * message binds one row.
+     * @param messages The new list; must not be modified afterwards
+     * @param commitCallback Run once the list is displayed, may be null
+     */
+    public void submitList(List<ChatMessage> messages, Runnable commitCallback) {
+        differ.submitList(messages, commitCallback);
+        precomputeLongMessages(messages);
+    }
+
+    @Override
+    public int getItemViewType(int position) {
+        return differ.getCurrentList().get(position).isUser() ? VIEW_TYPE_USER : VIEW_TYPE_ASSISTANT;
     }
 
     @NonNull
     @Override
     public MessageViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
-        View view = LayoutInflater.from(parent.getContext()).inflate(R.layout.item_message, parent, false);
-        return new MessageViewHolder(view);
+        int layout = viewType == VIEW_TYPE_USER ? R.layout.item_message_user : R.layout.item_message_assistant;
+        View view = LayoutInflater.from(parent.getContext()).inflate(layout, parent, false);
+        MessageViewHolder holder = new MessageViewHolder(view);
+        if (textParams[viewType] == null) {
+            // Every row of a type has the same text style, so one inflated view describes them all
+            textParams[viewType] = TextViewCompat.getTextMetricsParams(holder.messageText);
+            precomputeLongMessages(differ.getCurrentList());
+        }
+        return holder;
     }
 
     @Override
     public void onBindViewHolder(@NonNull MessageViewHolder holder, int position) {
-        ChatMessage message = messages.get(position);
+        ChatMessage message = differ.getCurrentList().get(position);
+        if (position < PREFETCH_DISTANCE && onNearTopListener != null) {
+            onNearTopListener.run();
+        }
+        // Taken out and put back, which moves it to the most recently used end
+        PrecomputedLayout precomputed = precomputedText.remove(message.getId());
+        if (precomputed != null && precomputed.source.equals(message.getMessage())) {
+            try {
+                TextViewCompat.setPrecomputedText(holder.messageText, precomputed.text);
+                precomputedText.put(message.getId(), precomputed);
+                return;
+            } catch (IllegalArgumentException e) {
+                // The view's text metrics no longer match, e.g. its text direction resolved
+                // differently once attached; lay it out the usual way
+            }
+        }
         holder.messageText.setText(message.getMessage());
-        
-        // Set different background colors for user and AI messages
-        if (message.isUser()) {
-            holder.messageText.setBackgroundResource(android.R.color.holo_blue_dark);
-            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                    LinearLayout.LayoutParams.WRAP_CONTENT,
-                    LinearLayout.LayoutParams.WRAP_CONTENT);
-            holder.messageText.setLayoutParams(params);
-            ((LinearLayout) holder.itemView).setGravity(android.view.Gravity.END);
-        } else {
-            holder.messageText.setBackgroundResource(android.R.color.holo_green_dark);
-            LinearLayout.LayoutParams params = new LinearLayout.LayoutParams(
-                    LinearLayout.LayoutParams.WRAP_CONTENT,
-                    LinearLayout.LayoutParams.WRAP_CONTENT);
-            holder.messageText.setLayoutParams(params);
-            ((LinearLayout) holder.itemView).setGravity(android.view.Gravity.START);
+    }
+
+    /**
+     * Lay out the text of long messages on the cpu pool, so that binding them does not measure
+     * text on the main thread. Messages bound before their layout is ready are bound again
+     * once it is. While a response streams in, each message has at most one layout in flight;
+     * a result for text that has changed since is dropped and the current text is scheduled
+     * instead, so the final text is laid out even if no list is submitted after it.
+     */
+    private void precomputeLongMessages(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            String text = message.getMessage();
+            int viewType = message.isUser() ? VIEW_TYPE_USER : VIEW_TYPE_ASSISTANT;
+            PrecomputedTextCompat.Params params = textParams[viewType];
+            if (text == null || text.length() < PRECOMPUTE_MIN_LENGTH || params == null) {
+                continue;
+            }
+            long id = message.getId();
+            PrecomputedLayout cached = precomputedText.get(id);
+            if ((cached != null && cached.source.equals(text)) || precomputing.get(id) != null) {
+                continue;
+            }
+            precomputing.put(id, text);
+            HairStyleApplication.getExecutors().cpu().execute(() -> {
+                PrecomputedTextCompat layout = PrecomputedTextCompat.create(text, params);
+                mainHandler.post(() -> onPrecomputed(id, text, layout));
+            });
+        }
+    }
+
+    private void onPrecomputed(long id, String text, PrecomputedTextCompat layout) {
+        precomputing.remove(id);
+        List<ChatMessage> current = differ.getCurrentList();
+        for (int i = current.size() - 1; i >= 0; i--) {
+            ChatMessage message = current.get(i);
+            if (message.getId() != id) {
+                continue;
+            }
+            if (text.equals(message.getMessage())) {
+                precomputedText.remove(id);
+                precomputedText.put(id, new PrecomputedLayout(text, layout));
+                notifyItemChanged(i, PAYLOAD_PRECOMPUTED);
+            } else {
+                // Submitted lists skipped this message while the stale layout was in flight
+                precomputeLongMessages(Collections.singletonList(message));
+            }
+            return;
         }
     }
 
     @Override
     public int getItemCount() {
-        return messages.size();
+        return differ.getCurrentList().size();
     }
 
     static class MessageViewHolder extends RecyclerView.ViewHolder {
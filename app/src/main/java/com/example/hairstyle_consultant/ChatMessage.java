@@ -1,14 +1,37 @@
 package com.example.hairstyle_consultant;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class ChatMessage {
+    private static final AtomicLong nextId = new AtomicLong(1);
+
+    // Stable key for list diffing
+    private final long id;
     private String message;
     private boolean isUser;
 
     public ChatMessage(String message, boolean isUser) {
+        this(nextId.getAndIncrement(), message, isUser);
+    }
+
+    private ChatMessage(long id, String message, boolean isUser) {
+        this.id = id;
         this.message = message;
         this.isUser = isUser;
     }
 
+    /**
+     * @return A copy of this message with new text and the same id, so the list updates the
+     * existing row in place (used while a response is streaming in)
+     */
+    public ChatMessage withMessage(String message) {
+        return new ChatMessage(id, message, isUser);
+    }
+
+    public long getId() {
+        return id;
+    }
+
     public String getMessage() {
         return message;
     }
@@ -16,4 +39,4 @@ public class ChatMessage {
     public boolean isUser() {
         return isUser;
     }
-} 
\ No newline at end of file
+}
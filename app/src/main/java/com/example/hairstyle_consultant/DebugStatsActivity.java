@@ -0,0 +1,43 @@
+package com.example.hairstyle_consultant;
+
+import android.os.Bundle;
+import android.widget.TextView;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+import com.example.hairstyle_consultant.chat.ResponseCache;
+import com.example.hairstyle_consultant.chat.TurnTelemetry;
+import com.example.hairstyle_consultant.utils.AppExecutors;
+
+/**
+ * Debug screen with the chat pipeline's rolling statistics: per-turn token and latency
+ * histograms, the model client's SLO stats, the response cache and the thread pools.
+ * Opened from the chat with "/stats" in a debuggable build.
+ */
+public class DebugStatsActivity extends AppCompatActivity {
+    private TextView statsText;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_debug_stats);
+        statsText = findViewById(R.id.statsText);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        StringBuilder text = new StringBuilder();
+        text.append("CHAT TURNS\n").append(TurnTelemetry.getInstance().dump());
+
+        text.append("\nMODEL CLIENT\n").append(HairStyleApplication.getModelClient().getStats()).append('\n');
+
+        text.append("\nRESPONSE CACHE\n").append(ResponseCache.getInstance(this).getStats()).append('\n');
+
+        text.append("\nTHREAD POOLS\n");
+        for (AppExecutors.PoolStats stats : HairStyleApplication.getExecutors().getStats()) {
+            text.append(stats).append('\n');
+        }
+        statsText.setText(text);
+    }
+}
@@ -17,6 +17,7 @@ import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.example.hairstyle_consultant.auth.AuthenticationManager;
+import com.example.hairstyle_consultant.chat.ChatPreloader;
 import com.example.hairstyle_consultant.models.User;
 import com.example.hairstyle_consultant.utils.DatabaseInitializer;
 import com.google.firebase.auth.FirebaseUser;
@@ -62,7 +63,7 @@ public class MainActivity extends AppCompatActivity {
         updateWelcomeMessage();
 
         // Initialize the product database with sample data
-        DatabaseInitializer databaseInitializer = new DatabaseInitializer();
+        DatabaseInitializer databaseInitializer = new DatabaseInitializer(this);
         databaseInitializer.initializeProducts();
     }
 
@@ -137,6 +138,11 @@ public class MainActivity extends AppCompatActivity {
         super.onResume();
         // Update welcome message and UI when returning from other activities
         updateWelcomeMessage();
+        // The chat button is on screen; load what the chat needs before it is tapped
+        FirebaseUser user = authManager.getCurrentUser();
+        if (user != null) {
+            ChatPreloader.getInstance().prefetch(user.getUid());
+        }
     }
 
     @Override
@@ -6,24 +6,29 @@ import android.view.View;
 import android.widget.ImageButton;
 import android.widget.Toast;
 
+import androidx.activity.result.ActivityResult;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
-import com.example.hairstyle_consultant.adapters.ProductAdapter;
+import com.example.hairstyle_consultant.adapters.PagedProductAdapter;
 import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.services.ProductQuery;
 import com.example.hairstyle_consultant.services.ProductService;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
-import com.google.firebase.firestore.QueryDocumentSnapshot;
-
-import java.util.ArrayList;
-import java.util.List;
 
 public class ManageProductsActivity extends AppCompatActivity {
+    private static final int PAGE_SIZE = 20;
+    // Pages kept in memory at once; older pages are reloaded if the user scrolls back
+    private static final int MAX_PAGES_IN_MEMORY = 5;
     private RecyclerView productsRecyclerView;
-    private ProductAdapter productAdapter;
-    private List<Product> products;
+    private PagedProductAdapter productAdapter;
     private ProductService productService;
+    // AddProductActivity returns the id of the product it saved
+    private final ActivityResultLauncher<Intent> editProduct = registerForActivityResult(
+            new ActivityResultContracts.StartActivityForResult(), this::onProductSaved);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -47,65 +52,56 @@ public class ManageProductsActivity extends AppCompatActivity {
         // Initialize services
         productService = new ProductService();
 
-        // Initialize products list and adapter
-        products = new ArrayList<>();
-        productAdapter = new ProductAdapter(products, this::onEditProduct, this::onDeleteProduct);
+        // Initialize paged adapter, ordered by name
+        productAdapter = new PagedProductAdapter(productService, ProductQuery.SortField.NAME, PAGE_SIZE,
+                MAX_PAGES_IN_MEMORY, this::onEditProduct, this::onDeleteProduct);
+        productAdapter.setOnLoadErrorListener(e -> {
+            Toast.makeText(this, "Error loading products: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+        });
         productsRecyclerView.setLayoutManager(new LinearLayoutManager(this));
         productsRecyclerView.setAdapter(productAdapter);
+        productAdapter.attachTo(productsRecyclerView);
+        productAdapter.refresh();
 
         // Set up add product button
         addProductFab.setOnClickListener(v -> {
             Intent intent = new Intent(ManageProductsActivity.this, AddProductActivity.class);
-            startActivity(intent);
+            editProduct.launch(intent);
         });
-
-        // Load products
-        loadProducts();
     }
 
-    @Override
-    protected void onResume() {
-        super.onResume();
-        loadProducts(); // Reload products when returning to this activity
-    }
-
-    private void loadProducts() {
-        productService.getAllProducts()
-            .addOnSuccessListener(queryDocumentSnapshots -> {
-                products.clear();
-                for (QueryDocumentSnapshot document : queryDocumentSnapshots) {
-                    try {
-                        // Get the document ID first
-                        String documentId = document.getId();
-                        
-                        // Convert the document to a Product object
-                        Product product = document.toObject(Product.class);
-                        if (product != null) {
-                            // Set the document ID as a string
-                            product.setId(documentId);
-                            products.add(product);
-                        }
-                    } catch (Exception e) {
-                        Toast.makeText(this, "Error loading product: " + e.getMessage(), Toast.LENGTH_SHORT).show();
-                    }
+    /**
+     * Fetch only the saved product and put it into the list in place, so the admin keeps their
+     * scroll position and the loaded pages.
+     */
+    private void onProductSaved(ActivityResult result) {
+        Intent data = result.getData();
+        if (result.getResultCode() != RESULT_OK || data == null) {
+            return;
+        }
+        String productId = data.getStringExtra(AddProductActivity.EXTRA_PRODUCT_ID);
+        productService.getProductById(productId)
+            .addOnSuccessListener(documentSnapshot -> {
+                Product product = documentSnapshot.exists() ? ProductService.toProduct(documentSnapshot) : null;
+                if (product != null) {
+                    productAdapter.putProduct(product);
                 }
-                productAdapter.notifyDataSetChanged();
             })
             .addOnFailureListener(e -> {
-                Toast.makeText(this, "Error loading products: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                Toast.makeText(this, "Error loading product: " + e.getMessage(), Toast.LENGTH_SHORT).show();
             });
     }
 
     private void onEditProduct(Product product) {
         Intent intent = new Intent(this, AddProductActivity.class);
-        intent.putExtra("productId", product.getId());
+        intent.putExtra(AddProductActivity.EXTRA_PRODUCT_ID, product.getId());
         intent.putExtra("productName", product.getName());
         intent.putExtra("productDescription", product.getDescription());
         intent.putExtra("productPrice", product.getPrice());
         intent.putExtra("productStock", product.getStockAmount());
         intent.putExtra("productCategory", product.getCategory());
         intent.putExtra("productAvailable", product.isAvailable());
-        startActivity(intent);
+        editProduct.launch(intent);
     }
 
     private void onDeleteProduct(Product product) {
@@ -113,7 +109,7 @@ public class ManageProductsActivity extends AppCompatActivity {
             productService.deleteProduct(product.getId())
                 .addOnSuccessListener(aVoid -> {
                     Toast.makeText(this, "Product deleted successfully", Toast.LENGTH_SHORT).show();
-                    loadProducts(); // Reload the list
+                    productAdapter.removeProduct(product);
                 })
                 .addOnFailureListener(e -> {
                     Toast.makeText(this, "Error deleting product: " + e.getMessage(), Toast.LENGTH_SHORT).show();
@@ -0,0 +1,283 @@
+package com.example.hairstyle_consultant.adapters;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.services.ProductQuery;
+import com.example.hairstyle_consultant.services.ProductService;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * ProductAdapter that loads products page by page as the user scrolls, and keeps at most
+ * maxPages pages in memory. Pages that scroll far out of view are dropped and loaded
+ * again from Firestore if the user scrolls back to them.
+ */
+public class PagedProductAdapter extends ProductAdapter {
+    private static final String TAG = "PagedProductAdapter";
+    // Start loading when the user is this many rows away from either end of the window
+    private static final int PREFETCH_DISTANCE = 5;
+
+    private final ProductService productService;
+    private final String orderByField;
+    private final Comparator<Product> order;
+    private final int pageSize;
+    private final int maxPages;
+    private final Deque<Page> pages = new ArrayDeque<>();
+    private OnLoadErrorListener errorListener;
+    private boolean loading;
+    private boolean reachedEnd;
+    private boolean hasPagesBefore;
+    // Bumped on refresh so responses for the previous window are ignored
+    private int generation;
+
+    public interface OnLoadErrorListener {
+        void onLoadError(Exception e);
+    }
+
+    private static class Page {
+        final List<Product> items;
+        final DocumentSnapshot first;
+        final DocumentSnapshot last;
+
+        Page(List<Product> items, DocumentSnapshot first, DocumentSnapshot last) {
+            this.items = items;
+            this.first = first;
+            this.last = last;
+        }
+    }
+
+    public PagedProductAdapter(ProductService productService, ProductQuery.SortField sortField, int pageSize,
+                               int maxPages, OnProductActionListener editListener,
+                               OnProductActionListener deleteListener) {
+        super(editListener, deleteListener);
+        this.productService = productService;
+        this.orderByField = sortField.getFieldName();
+        this.order = sortField.comparator();
+        this.pageSize = pageSize;
+        this.maxPages = maxPages;
+    }
+
+    public void setOnLoadErrorListener(OnLoadErrorListener errorListener) {
+        this.errorListener = errorListener;
+    }
+
+    /**
+     * Load the next or previous page whenever the user scrolls close to the edge of the window.
+     */
+    public void attachTo(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+                if (layoutManager == null) {
+                    return;
+                }
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition() >= getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                } else if (dy < 0 && layoutManager.findFirstVisibleItemPosition() <= PREFETCH_DISTANCE) {
+                    loadPreviousPage();
+                }
+            }
+        });
+    }
+
+    /**
+     * Drop everything and load the first page again.
+     */
+    public void refresh() {
+        generation++;
+        loading = false;
+        reachedEnd = false;
+        hasPagesBefore = false;
+        pages.clear();
+        publish();
+        loadNextPage();
+    }
+
+    public void loadNextPage() {
+        if (loading || reachedEnd) {
+            return;
+        }
+        loading = true;
+        int requestGeneration = generation;
+        DocumentSnapshot cursor = pages.isEmpty() ? null : pages.peekLast().last;
+        productService.getProductsPage(orderByField, pageSize, cursor)
+                .addOnSuccessListener(snapshot -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    loading = false;
+                    reachedEnd = snapshot.size() < pageSize;
+                    if (!snapshot.isEmpty()) {
+                        appendPage(toPage(snapshot));
+                    }
+                })
+                .addOnFailureListener(e -> onLoadFailed(requestGeneration, e));
+    }
+
+    public void loadPreviousPage() {
+        if (loading || !hasPagesBefore || pages.isEmpty()) {
+            return;
+        }
+        loading = true;
+        int requestGeneration = generation;
+        productService.getProductsPageBefore(orderByField, pageSize, pages.peekFirst().first)
+                .addOnSuccessListener(snapshot -> {
+                    if (requestGeneration != generation) {
+                        return;
+                    }
+                    loading = false;
+                    hasPagesBefore = snapshot.size() >= pageSize;
+                    if (!snapshot.isEmpty()) {
+                        prependPage(toPage(snapshot));
+                    }
+                })
+                .addOnFailureListener(e -> onLoadFailed(requestGeneration, e));
+    }
+
+    /**
+     * Remove a product from the loaded window, e.g. after it was deleted.
+     */
+    public void removeProduct(Product product) {
+        if (removeFromPages(product.getId())) {
+            publish();
+        }
+    }
+
+    /**
+     * Show a product that was just added or edited without reloading the window: it replaces
+     * its old version and moves to where it now sorts. A product that sorts outside the loaded
+     * window is dropped from it and shows up when its page loads.
+     */
+    public void putProduct(Product product) {
+        if (pages.isEmpty()) {
+            // Nothing loaded yet, or an empty catalog; either way there is no window to keep
+            refresh();
+            return;
+        }
+        removeFromPages(product.getId());
+        boolean firstItems = true;
+        Iterator<Page> iterator = pages.iterator();
+        while (iterator.hasNext()) {
+            List<Product> items = iterator.next().items;
+            boolean lastPage = !iterator.hasNext();
+            int index = 0;
+            while (index < items.size() && order.compare(items.get(index), product) <= 0) {
+                index++;
+            }
+            if (index == items.size() && !lastPage) {
+                firstItems &= items.isEmpty();
+                continue;
+            }
+            // Before the first loaded item or past the last one it may belong to an unloaded page
+            boolean outsideWindow = (firstItems && index == 0 && hasPagesBefore)
+                    || (lastPage && index == items.size() && !reachedEnd);
+            if (!outsideWindow) {
+                items.add(index, product);
+            }
+            break;
+        }
+        publish();
+    }
+
+    private boolean removeFromPages(String productId) {
+        for (Page page : pages) {
+            for (int i = 0; i < page.items.size(); i++) {
+                if (page.items.get(i).getId().equals(productId)) {
+                    page.items.remove(i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void appendPage(Page page) {
+        dropLoadedItems(page);
+        pages.addLast(page);
+        if (pages.size() > maxPages) {
+            pages.removeFirst();
+            hasPagesBefore = true;
+        }
+        publish();
+    }
+
+    private void prependPage(Page page) {
+        dropLoadedItems(page);
+        pages.addFirst(page);
+        if (pages.size() > maxPages) {
+            pages.removeLast();
+            reachedEnd = false;
+        }
+        publish();
+    }
+
+    /**
+     * A product put into the window by {@link #putProduct} can sort past a page's cursor, so
+     * the page next to it may bring it again.
+     */
+    private void dropLoadedItems(Page page) {
+        Set<String> loaded = new HashSet<>();
+        for (Page other : pages) {
+            for (Product product : other.items) {
+                loaded.add(product.getId());
+            }
+        }
+        Iterator<Product> items = page.items.iterator();
+        while (items.hasNext()) {
+            if (loaded.contains(items.next().getId())) {
+                items.remove();
+            }
+        }
+    }
+
+    /**
+     * Submit the current window; the diff turns page loads and drops into range notifications.
+     */
+    private void publish() {
+        List<Product> window = new ArrayList<>();
+        for (Page page : pages) {
+            window.addAll(page.items);
+        }
+        submitList(window);
+    }
+
+    private Page toPage(QuerySnapshot snapshot) {
+        List<Product> items = new ArrayList<>(snapshot.size());
+        for (QueryDocumentSnapshot document : snapshot) {
+            try {
+                items.add(ProductService.toProduct(document));
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Skipping malformed product " + document.getId(), e);
+            }
+        }
+        List<DocumentSnapshot> documents = snapshot.getDocuments();
+        return new Page(items, documents.get(0), documents.get(documents.size() - 1));
+    }
+
+    private void onLoadFailed(int requestGeneration, Exception e) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        loading = false;
+        Log.e(TAG, "Error loading products page", e);
+        if (errorListener != null) {
+            errorListener.onLoadError(e);
+        }
+    }
+}
@@ -3,19 +3,50 @@ package com.example.hairstyle_consultant.adapters;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
+import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.AdapterListUpdateCallback;
+import androidx.recyclerview.widget.AsyncDifferConfig;
+import androidx.recyclerview.widget.AsyncListDiffer;
+import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.RecyclerView;
 
+import com.example.hairstyle_consultant.HairStyleApplication;
 import com.example.hairstyle_consultant.R;
 import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.utils.ImageLoader;
 import com.google.android.material.button.MaterialButton;
 
 import java.util.List;
+import java.util.Objects;
 
 public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductViewHolder> {
-    private List<Product> products;
+    // Products are keyed by their Firestore ID; contents compare every displayed field
+    private static final DiffUtil.ItemCallback<Product> DIFF_CALLBACK = new DiffUtil.ItemCallback<Product>() {
+        @Override
+        public boolean areItemsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            return Objects.equals(oldItem.getId(), newItem.getId());
+        }
+
+        @Override
+        public boolean areContentsTheSame(@NonNull Product oldItem, @NonNull Product newItem) {
+            return Objects.equals(oldItem.getName(), newItem.getName())
+                    && Objects.equals(oldItem.getDescription(), newItem.getDescription())
+                    && oldItem.getPrice() == newItem.getPrice()
+                    && oldItem.getStockAmount() == newItem.getStockAmount()
+                    && Objects.equals(oldItem.getCategory(), newItem.getCategory())
+                    && Objects.equals(oldItem.getBrand(), newItem.getBrand())
+                    && Objects.equals(oldItem.getImageUrl(), newItem.getImageUrl())
+                    && oldItem.isAvailable() == newItem.isAvailable();
+        }
+    };
+
+    private final AsyncListDiffer<Product> differ = new AsyncListDiffer<>(new AdapterListUpdateCallback(this),
+            new AsyncDifferConfig.Builder<>(DIFF_CALLBACK)
+                    .setBackgroundThreadExecutor(HairStyleApplication.getExecutors().cpu())
+                    .build());
     private OnProductActionListener editListener;
     private OnProductActionListener deleteListener;
 
@@ -23,8 +54,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         void onAction(Product product);
     }
 
-    public ProductAdapter(List<Product> products, OnProductActionListener editListener, OnProductActionListener deleteListener) {
-        this.products = products;
+    public ProductAdapter(OnProductActionListener editListener, OnProductActionListener deleteListener) {
         this.editListener = editListener;
         this.deleteListener = deleteListener;
     }
@@ -39,16 +69,36 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
 
     @Override
     public void onBindViewHolder(@NonNull ProductViewHolder holder, int position) {
-        Product product = products.get(position);
+        Product product = differ.getCurrentList().get(position);
         holder.bind(product);
     }
 
+    /**
+     * Show a new list. The diff against the current list is computed off the main thread and
+     * only the rows that were inserted, removed or changed are rebound.
+     * @param products The new list; must not be modified afterwards
+     */
+    public void submitList(List<Product> products) {
+        differ.submitList(products);
+    }
+
+    public List<Product> getCurrentList() {
+        return differ.getCurrentList();
+    }
+
+    @Override
+    public void onViewRecycled(@NonNull ProductViewHolder holder) {
+        super.onViewRecycled(holder);
+        ImageLoader.getInstance(holder.itemView.getContext()).cancel(holder.imageView);
+    }
+
     @Override
     public int getItemCount() {
-        return products.size();
+        return differ.getCurrentList().size();
     }
 
     class ProductViewHolder extends RecyclerView.ViewHolder {
+        private ImageView imageView;
         private TextView nameText;
         private TextView priceText;
         private TextView descriptionText;
@@ -59,6 +109,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
 
         ProductViewHolder(@NonNull View itemView) {
             super(itemView);
+            imageView = itemView.findViewById(R.id.productImage);
             nameText = itemView.findViewById(R.id.productName);
             priceText = itemView.findViewById(R.id.productPrice);
             descriptionText = itemView.findViewById(R.id.productDescription);
@@ -69,6 +120,7 @@ public class ProductAdapter extends RecyclerView.Adapter<ProductAdapter.ProductV
         }
 
         void bind(Product product) {
+            ImageLoader.getInstance(itemView.getContext()).load(product.getImageUrl(), imageView);
             nameText.setText(product.getName());
             priceText.setText(String.format("$%.2f", product.getPrice()));
             descriptionText.setText(product.getDescription());
@@ -61,24 +61,22 @@ public class AuthenticationManager {
             // Initialize Firebase Database with the correct URL
             database = FirebaseDatabase.getInstance(DATABASE_URL);
             
-            // Set up security provider in background
-            new Thread(() -> {
-                try {
-                    ProviderInstaller.installIfNeededAsync(context, new ProviderInstaller.ProviderInstallListener() {
-                        @Override
-                        public void onProviderInstalled() {
-                            Log.d("AuthManager", "Security provider installed successfully");
-                        }
+            // Set up security provider; the call is asynchronous and must be made on the main thread
+            try {
+                ProviderInstaller.installIfNeededAsync(context, new ProviderInstaller.ProviderInstallListener() {
+                    @Override
+                    public void onProviderInstalled() {
+                        Log.d("AuthManager", "Security provider installed successfully");
+                    }
 
-                        @Override
-                        public void onProviderInstallFailed(int errorCode, Intent recoveryIntent) {
-                            Log.e("AuthManager", "Security provider installation failed: " + errorCode);
-                        }
-                    });
-                } catch (Exception e) {
-                    Log.e("AuthManager", "Error installing security provider: " + e.getMessage());
-                }
-            }).start();
+                    @Override
+                    public void onProviderInstallFailed(int errorCode, Intent recoveryIntent) {
+                        Log.e("AuthManager", "Security provider installation failed: " + errorCode);
+                    }
+                });
+            } catch (Exception e) {
+                Log.e("AuthManager", "Error installing security provider: " + e.getMessage());
+            }
 
             isInitialized = true;
             Log.d("AuthManager", "AuthenticationManager initialized successfully");
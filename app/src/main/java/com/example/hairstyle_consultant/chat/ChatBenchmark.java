@@ -0,0 +1,323 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.os.Debug;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.hairstyle_consultant.ChatAdapter;
+import com.example.hairstyle_consultant.ChatMessage;
+import com.example.hairstyle_consultant.HairStyleApplication;
+import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.models.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Drives the chat pipeline the way ChatActivity does (retrieval, prompt assembly, conversation
+ * memory, a streamed call and frame-throttled rendering through a {@link ChatAdapter}) for a
+ * number of concurrent simulated sessions, and reports turn latency percentiles.
+ *
+ * Each session submits its message list to its own adapter, so the diff runs on the cpu pool
+ * and is committed on the main thread as on screen. No RecyclerView is attached, so rows are
+ * not inflated or bound; a turn ends once its final list is committed.
+ *
+ * Run it against a {@link FakeLlmClient} to measure the app's own overhead, or against
+ * {@link GeminiClient} for end-to-end numbers. Allocation is read from the runtime's process-wide
+ * allocation counter, so other work in the process during the run is included.
+ *
+ * Usage (on the main thread):
+ * ChatBenchmark.builder(client, retriever, assembler)
+ *     .concurrency(4)
+ *     .turnsPerSession(10)
+ *     .build()
+ *     .run(report -> Log.d(TAG, report.toString()));
+ */
+public class ChatBenchmark {
+    private static final String TAG = "ChatBenchmark";
+    private static final String ALLOCATED_BYTES_STAT = "art.gc.bytes-allocated";
+    private static final String[] DEFAULT_QUESTIONS = {
+            "Tóc tôi bị gàu nhiều, nên dùng dầu gội nào?",
+            "Làm sao để phục hồi tóc khô và chẻ ngọn?",
+            "Tôi muốn tóc phồng hơn, có sản phẩm nào phù hợp?",
+            "Tóc nhuộm bị phai màu nhanh, tôi nên làm gì?",
+            "Có nên dùng máy sấy tóc mỗi ngày không?",
+            "Dầu xả nào giúp tóc xoăn vào nếp?"
+    };
+
+    public interface Listener {
+        void onFinished(Report report);
+    }
+
+    public static class Report {
+        public final int turns;
+        public final int failures;
+        public final int concurrency;
+        public final long wallMs;
+        // Nearest-rank percentiles, in milliseconds
+        public final long[] turnLatencyMs;
+        public final long[] firstTokenMs;
+        // From submitting a message list to the adapter until it is committed
+        public final long[] renderMs;
+        public final long bytesPerTurn;
+
+        Report(int turns, int failures, int concurrency, long wallMs, long[] turnLatencyMs, long[] firstTokenMs,
+               long[] renderMs, long bytesPerTurn) {
+            this.turns = turns;
+            this.failures = failures;
+            this.concurrency = concurrency;
+            this.wallMs = wallMs;
+            this.turnLatencyMs = turnLatencyMs;
+            this.firstTokenMs = firstTokenMs;
+            this.renderMs = renderMs;
+            this.bytesPerTurn = bytesPerTurn;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "%d turns (%d failed) at concurrency %d in %d ms\n" +
+                    "turn latency p50/p95/p99: %d/%d/%d ms\n" +
+                    "first token p50/p95/p99: %d/%d/%d ms\n" +
+                    "render commit p50/p95/p99: %d/%d/%d ms\n" +
+                    "allocated per turn: %s",
+                    turns, failures, concurrency, wallMs,
+                    turnLatencyMs[0], turnLatencyMs[1], turnLatencyMs[2],
+                    firstTokenMs[0], firstTokenMs[1], firstTokenMs[2],
+                    renderMs[0], renderMs[1], renderMs[2],
+                    bytesPerTurn < 0 ? "n/a" : (bytesPerTurn / 1024) + " KB");
+        }
+    }
+
+    private final LlmClient client;
+    private final ProductRetriever retriever;
+    private final PromptAssembler assembler;
+    private final User user;
+    private final List<String> questions;
+    private final int concurrency;
+    private final int turnsPerSession;
+
+    private final List<Long> turnLatencies = new ArrayList<>();
+    private final List<Long> firstTokenLatencies = new ArrayList<>();
+    private final List<Long> renderLatencies = new ArrayList<>();
+    private int failures;
+    private int sessionsRunning;
+    private long startedAt;
+    private long startAllocated;
+    private Listener listener;
+
+    private ChatBenchmark(Builder builder) {
+        this.client = builder.client;
+        this.retriever = builder.retriever;
+        this.assembler = builder.assembler;
+        this.user = builder.user;
+        this.questions = builder.questions;
+        this.concurrency = builder.concurrency;
+        this.turnsPerSession = builder.turnsPerSession;
+    }
+
+    public static Builder builder(LlmClient client, ProductRetriever retriever, PromptAssembler assembler) {
+        return new Builder(client, retriever, assembler);
+    }
+
+    /**
+     * Start the run; must be called on the main thread. The listener is called there once
+     * every session has finished.
+     */
+    public void run(Listener listener) {
+        this.listener = listener;
+        startedAt = SystemClock.elapsedRealtime();
+        startAllocated = allocatedBytes();
+        sessionsRunning = concurrency;
+        for (int i = 0; i < concurrency; i++) {
+            new Session(i).nextTurn();
+        }
+    }
+
+    private void onSessionFinished() {
+        if (--sessionsRunning > 0) {
+            return;
+        }
+        int turns = turnLatencies.size() + failures;
+        long endAllocated = allocatedBytes();
+        long bytesPerTurn = startAllocated < 0 || endAllocated < 0 || turns == 0
+                ? -1 : (endAllocated - startAllocated) / turns;
+        Report report = new Report(turns, failures, concurrency, SystemClock.elapsedRealtime() - startedAt,
+                percentiles(turnLatencies), percentiles(firstTokenLatencies), percentiles(renderLatencies),
+                bytesPerTurn);
+        Log.d(TAG, report.toString());
+        HairStyleApplication.getExecutors().logStats();
+        listener.onFinished(report);
+    }
+
+    /**
+     * One simulated chat screen: its own memory and message list, turns one after another.
+     */
+    private class Session {
+        private final ConversationMemory memory;
+        private final List<ChatMessage> messages = new ArrayList<>();
+        private final ChatAdapter adapter = new ChatAdapter();
+        private int turn;
+        private int questionIndex;
+
+        Session(int index) {
+            memory = new ConversationMemory(
+                    (summary, turns) -> client.generate(Collections.singletonList(summary + "\n" + String.join("\n", turns))),
+                    HairStyleApplication.getExecutors().mainThread(),
+                    ConversationMemory.DEFAULT_TOKEN_BUDGET, ConversationMemory.DEFAULT_VERBATIM_ENTRIES);
+            questionIndex = index;
+        }
+
+        void nextTurn() {
+            if (turn++ == turnsPerSession) {
+                memory.cancel();
+                onSessionFinished();
+                return;
+            }
+            String question = questions.get(questionIndex++ % questions.size());
+            long start = SystemClock.elapsedRealtimeNanos();
+
+            messages.add(new ChatMessage(question, true));
+            render(null);
+            memory.add("User: " + question);
+            List<Product> products = retriever.retrieve(question, user);
+            PromptAssembler.Prompt prompt = assembler.build(products, memory.getContext());
+
+            int row = messages.size();
+            new ResponseStream(new ResponseStream.Listener() {
+                private boolean firstToken = true;
+
+                @Override
+                public void onPartialText(String text) {
+                    if (firstToken) {
+                        firstToken = false;
+                        firstTokenLatencies.add(elapsedMs(start));
+                        messages.add(new ChatMessage(text, false));
+                    } else {
+                        messages.set(row, messages.get(row).withMessage(text));
+                    }
+                    render(null);
+                }
+
+                @Override
+                public void onComplete(String text) {
+                    if (firstToken) {
+                        firstTokenLatencies.add(elapsedMs(start));
+                        messages.add(new ChatMessage(text, false));
+                    } else {
+                        messages.set(row, messages.get(row).withMessage(text));
+                    }
+                    memory.add("Assistant: " + text);
+                    // Nothing is submitted after this until it commits, so it is never superseded
+                    render(() -> {
+                        turnLatencies.add(elapsedMs(start));
+                        nextTurn();
+                    });
+                }
+
+                @Override
+                public void onError(Throwable error, String text) {
+                    failures++;
+                    nextTurn();
+                }
+            }).start(client.generateStream(prompt.parts));
+        }
+
+        /**
+         * What ChatActivity does on the main thread per update. A list superseded before its
+         * diff finishes is never committed, so it records no render time and onCommitted is
+         * not run.
+         */
+        private void render(Runnable onCommitted) {
+            long submittedAt = SystemClock.elapsedRealtimeNanos();
+            adapter.submitList(new ArrayList<>(messages), () -> {
+                renderLatencies.add(elapsedMs(submittedAt));
+                if (onCommitted != null) {
+                    onCommitted.run();
+                }
+            });
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return (SystemClock.elapsedRealtimeNanos() - startNanos) / 1000000;
+    }
+
+    private static long[] percentiles(List<Long> values) {
+        if (values.isEmpty()) {
+            return new long[]{0, 0, 0};
+        }
+        long[] sorted = new long[values.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = values.get(i);
+        }
+        Arrays.sort(sorted);
+        return new long[]{rank(sorted, 50), rank(sorted, 95), rank(sorted, 99)};
+    }
+
+    private static long rank(long[] sorted, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * @return Bytes allocated by the process so far, or -1 if the runtime does not report it
+     */
+    private static long allocatedBytes() {
+        String value = Debug.getRuntimeStat(ALLOCATED_BYTES_STAT);
+        try {
+            return value == null ? -1 : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static class Builder {
+        private final LlmClient client;
+        private final ProductRetriever retriever;
+        private final PromptAssembler assembler;
+        private User user;
+        private List<String> questions = Arrays.asList(DEFAULT_QUESTIONS);
+        private int concurrency = 1;
+        private int turnsPerSession = 10;
+
+        private Builder(LlmClient client, ProductRetriever retriever, PromptAssembler assembler) {
+            this.client = client;
+            this.retriever = retriever;
+            this.assembler = assembler;
+        }
+
+        /**
+         * @param user Hair profile used for retrieval, may be null
+         */
+        public Builder user(User user) {
+            this.user = user;
+            return this;
+        }
+
+        public Builder questions(List<String> questions) {
+            this.questions = questions;
+            return this;
+        }
+
+        public Builder concurrency(int concurrency) {
+            this.concurrency = concurrency;
+            return this;
+        }
+
+        public Builder turnsPerSession(int turnsPerSession) {
+            this.turnsPerSession = turnsPerSession;
+            return this;
+        }
+
+        public ChatBenchmark build() {
+            if (concurrency <= 0 || turnsPerSession <= 0 || questions.isEmpty()) {
+                throw new IllegalArgumentException("concurrency, turnsPerSession and questions must be positive");
+            }
+            return new ChatBenchmark(this);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.util.Log;
+
+import com.example.hairstyle_consultant.ChatMessage;
+import com.example.hairstyle_consultant.HairStyleApplication;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Chat sessions stored in a local SQLite database, so a consultation survives leaving the
+ * chat screen.
+ *
+ * Messages are append-only and read newest first, one page at a time, through an index on
+ * (session_id, id). Opening a chat reads a single page however long it is. All database
+ * work runs on the io pool; writes go through a sequential executor so messages are stored
+ * in the order they were appended.
+ */
+public class ChatHistoryStore {
+    private static final String TAG = "ChatHistoryStore";
+    private static final String DATABASE_NAME = "chat_history.db";
+    private static final int DATABASE_VERSION = 1;
+    private static ChatHistoryStore instance;
+
+    /**
+     * One page of messages, oldest first.
+     */
+    public static class Page {
+        public final List<ChatMessage> messages;
+        // Pass to loadPage to get the page before this one
+        public final long oldestRowId;
+        public final boolean hasMore;
+
+        Page(List<ChatMessage> messages, long oldestRowId, boolean hasMore) {
+            this.messages = messages;
+            this.oldestRowId = oldestRowId;
+            this.hasMore = hasMore;
+        }
+    }
+
+    private static class Helper extends SQLiteOpenHelper {
+        Helper(Context context) {
+            super(context, DATABASE_NAME, null, DATABASE_VERSION);
+        }
+
+        @Override
+        public void onCreate(SQLiteDatabase db) {
+            db.execSQL("CREATE TABLE sessions ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "user_id TEXT NOT NULL, "
+                    + "created_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX sessions_user ON sessions (user_id, id)");
+            db.execSQL("CREATE TABLE messages ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "session_id INTEGER NOT NULL REFERENCES sessions (id), "
+                    + "is_user INTEGER NOT NULL, "
+                    + "text TEXT NOT NULL, "
+                    + "created_at INTEGER NOT NULL)");
+            db.execSQL("CREATE INDEX messages_session ON messages (session_id, id)");
+        }
+
+        @Override
+        public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        }
+    }
+
+    private final Helper helper;
+    private final Executor reads = HairStyleApplication.getExecutors().io();
+    private final Executor writes = MoreExecutors.newSequentialExecutor(HairStyleApplication.getExecutors().io());
+
+    private ChatHistoryStore(Context context) {
+        helper = new Helper(context);
+    }
+
+    public static synchronized ChatHistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new ChatHistoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @return The id of the user's latest session, created if they have none
+     */
+    public ListenableFuture<Long> openSession(String userId) {
+        return Futures.submit(() -> {
+            SQLiteDatabase db = helper.getWritableDatabase();
+            try (Cursor cursor = db.rawQuery(
+                    "SELECT id FROM sessions WHERE user_id = ? ORDER BY id DESC LIMIT 1",
+                    new String[]{userId})) {
+                if (cursor.moveToFirst()) {
+                    return cursor.getLong(0);
+                }
+            }
+            ContentValues values = new ContentValues();
+            values.put("user_id", userId);
+            values.put("created_at", System.currentTimeMillis());
+            return db.insertOrThrow("sessions", null, values);
+        }, writes);
+    }
+
+    /**
+     * @param beforeRowId Load messages older than this; Long.MAX_VALUE for the latest page
+     * @param limit Page size
+     */
+    public ListenableFuture<Page> loadPage(long sessionId, long beforeRowId, int limit) {
+        return Futures.submit(() -> {
+            SQLiteDatabase db = helper.getReadableDatabase();
+            // One extra row tells whether an older page exists
+            List<ChatMessage> messages = new ArrayList<>(limit);
+            long oldestRowId = beforeRowId;
+            boolean hasMore = false;
+            try (Cursor cursor = db.rawQuery(
+                    "SELECT id, is_user, text FROM messages WHERE session_id = ? AND id < ? ORDER BY id DESC LIMIT ?",
+                    new String[]{Long.toString(sessionId), Long.toString(beforeRowId), Integer.toString(limit + 1)})) {
+                while (cursor.moveToNext()) {
+                    if (messages.size() == limit) {
+                        hasMore = true;
+                        break;
+                    }
+                    oldestRowId = cursor.getLong(0);
+                    messages.add(new ChatMessage(cursor.getString(2), cursor.getInt(1) != 0));
+                }
+            }
+            Collections.reverse(messages);
+            return new Page(messages, oldestRowId, hasMore);
+        }, reads);
+    }
+
+    public void append(long sessionId, ChatMessage message) {
+        long createdAt = System.currentTimeMillis();
+        writes.execute(() -> {
+            ContentValues values = new ContentValues();
+            values.put("session_id", sessionId);
+            values.put("is_user", message.isUser() ? 1 : 0);
+            values.put("text", message.getMessage());
+            values.put("created_at", createdAt);
+            try {
+                helper.getWritableDatabase().insertOrThrow("messages", null, values);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Could not store message: " + e.getMessage());
+            }
+        });
+    }
+}
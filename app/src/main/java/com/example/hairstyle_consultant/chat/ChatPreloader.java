@@ -0,0 +1,126 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.hairstyle_consultant.models.User;
+import com.example.hairstyle_consultant.services.ProductCatalog;
+import com.example.hairstyle_consultant.services.ProductService;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.database.DataSnapshot;
+import com.google.firebase.database.DatabaseError;
+import com.google.firebase.database.FirebaseDatabase;
+import com.google.firebase.database.ValueEventListener;
+
+/**
+ * Loads what the chat screen needs before it can answer: the product catalog and the user's
+ * hair profile. Both are requested at the same time, so the chat is ready after the slower of
+ * the two rather than after both in turn.
+ *
+ * MainActivity calls {@link #prefetch(String)} while the chat button is on screen, and
+ * ChatActivity picks the load up with {@link #take(String)}; by then it has usually finished.
+ */
+public class ChatPreloader {
+    private static final String TAG = "ChatPreloader";
+    private static final String DATABASE_URL = "https://hairstyleconsultant-default-rtdb.asia-southeast1.firebasedatabase.app/";
+    // An older profile is fetched again; it may have been edited since
+    private static final long MAX_PROFILE_AGE_MS = 60000;
+    private static ChatPreloader instance;
+
+    public static class Load {
+        public final String userId;
+        public final ProductCatalog catalog;
+        // Completes once the catalog has its first server-confirmed snapshot
+        public final Task<Void> catalogLoaded;
+        // The user's profile; null if they have none
+        public final Task<User> profile;
+        // Completes once both of the above have, successfully or not
+        public final Task<Void> ready;
+        private final long startedAt = SystemClock.elapsedRealtime();
+
+        Load(String userId, ProductCatalog catalog, Task<User> profile) {
+            this.userId = userId;
+            this.catalog = catalog;
+            this.catalogLoaded = catalog.whenLoaded();
+            this.profile = profile;
+            this.ready = Tasks.whenAllComplete(catalogLoaded, profile).continueWith(task -> null);
+        }
+
+        boolean isUsableFor(String userId) {
+            if (!this.userId.equals(userId)) {
+                return false;
+            }
+            // The catalog drops its listener on failure; a new load re-attaches it
+            if (catalogLoaded.isComplete() && !catalogLoaded.isSuccessful()) {
+                return false;
+            }
+            if (!profile.isComplete()) {
+                return true;
+            }
+            return profile.isSuccessful() && SystemClock.elapsedRealtime() - startedAt < MAX_PROFILE_AGE_MS;
+        }
+    }
+
+    private final ProductService productService = new ProductService();
+    private Load prefetched;
+
+    private ChatPreloader() {
+    }
+
+    public static synchronized ChatPreloader getInstance() {
+        if (instance == null) {
+            instance = new ChatPreloader();
+        }
+        return instance;
+    }
+
+    /**
+     * Start loading for the chat in the background, unless a load for this user is already
+     * running. A finished load is refreshed, so a profile edited meanwhile is picked up.
+     */
+    public synchronized void prefetch(String userId) {
+        if (prefetched != null && prefetched.userId.equals(userId) && !prefetched.ready.isComplete()) {
+            return;
+        }
+        prefetched = start(userId);
+    }
+
+    /**
+     * @return The prefetched load if there is a usable one, otherwise a new one
+     */
+    public synchronized Load take(String userId) {
+        Load load = prefetched;
+        prefetched = null;
+        if (load != null && load.isUsableFor(userId)) {
+            Log.d(TAG, "Using prefetched chat data, " + (load.ready.isComplete() ? "ready" : "still loading"));
+            return load;
+        }
+        return start(userId);
+    }
+
+    private Load start(String userId) {
+        // The catalog is process-wide; starting it again is a no-op once it is listening
+        return new Load(userId, productService.getCatalog(), loadProfile(userId));
+    }
+
+    private static Task<User> loadProfile(String userId) {
+        TaskCompletionSource<User> source = new TaskCompletionSource<>();
+        FirebaseDatabase.getInstance(DATABASE_URL)
+                .getReference("users")
+                .child(userId)
+                .addListenerForSingleValueEvent(new ValueEventListener() {
+                    @Override
+                    public void onDataChange(DataSnapshot dataSnapshot) {
+                        source.setResult(dataSnapshot.exists() ? dataSnapshot.getValue(User.class) : null);
+                    }
+
+                    @Override
+                    public void onCancelled(DatabaseError databaseError) {
+                        source.setException(databaseError.toException());
+                    }
+                });
+        return source.getTask();
+    }
+}
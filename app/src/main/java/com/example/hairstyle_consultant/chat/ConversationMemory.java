@@ -0,0 +1,190 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.util.Log;
+
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Conversation history with a bounded size.
+ *
+ * The most recent turns are kept verbatim. Older turns are folded into a running summary by
+ * a {@link Summarizer}, in the background and incrementally (the previous summary plus the
+ * newly folded turns), so each summary is produced once and reused on every later turn.
+ * {@link #getContext} never returns more than the token budget, whether or not a summary is
+ * in flight: turns that are waiting to be folded are left out once they no longer fit.
+ *
+ * Not thread-safe; use it from the thread callbackExecutor runs on (normally the main thread).
+ */
+public class ConversationMemory {
+    private static final String TAG = "ConversationMemory";
+    // Rough average for mixed Vietnamese and English text; only used for budgeting
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final String SUMMARY_PREFIX = "Tóm tắt cuộc hội thoại trước đó: ";
+
+    public static final int DEFAULT_TOKEN_BUDGET = 2000;
+    public static final int DEFAULT_VERBATIM_ENTRIES = 8;
+    // Backstop if summarizing keeps failing; older unsummarized turns are dropped
+    private static final int MAX_PENDING_ENTRIES = 64;
+
+    /**
+     * Folds turns into a summary.
+     */
+    public interface Summarizer {
+        /**
+         * @param previousSummary Summary of everything before turns, empty if there is none
+         * @param turns Turns to fold in, oldest first
+         * @return The new summary, covering previousSummary and turns
+         */
+        ListenableFuture<String> summarize(String previousSummary, List<String> turns);
+    }
+
+    private final Summarizer summarizer;
+    private final Executor callbackExecutor;
+    private final int tokenBudget;
+    private final int verbatimEntries;
+
+    // Recent turns, oldest first
+    private final Deque<String> recent = new ArrayDeque<>();
+    // Turns moved out of recent that the summary does not cover yet, oldest first
+    private final List<String> pending = new ArrayList<>();
+    private String summary = "";
+    private int summarizedCount;
+    private boolean summarizing;
+    private ListenableFuture<String> inFlight;
+
+    public ConversationMemory(Summarizer summarizer, Executor callbackExecutor, int tokenBudget, int verbatimEntries) {
+        this.summarizer = summarizer;
+        this.callbackExecutor = callbackExecutor;
+        this.tokenBudget = tokenBudget;
+        this.verbatimEntries = verbatimEntries;
+    }
+
+    public static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    public void add(String entry) {
+        recent.addLast(entry);
+        int recentTokens = 0;
+        for (String turn : recent) {
+            recentTokens += estimateTokens(turn);
+        }
+        // Always keep the newest entry, even if it alone is over budget
+        while (recent.size() > 1 && (recent.size() > verbatimEntries || recentTokens > tokenBudget)) {
+            String oldest = recent.removeFirst();
+            recentTokens -= estimateTokens(oldest);
+            pending.add(oldest);
+        }
+        if (pending.size() > MAX_PENDING_ENTRIES && !summarizing) {
+            int dropped = pending.size() - MAX_PENDING_ENTRIES;
+            pending.subList(0, dropped).clear();
+            Log.w(TAG, "Dropped " + dropped + " turns that could not be summarized");
+        }
+        summarizeIfNeeded();
+    }
+
+    /**
+     * @return The entries to send with the next request, oldest first: the summary (if any),
+     * then as many of the unsummarized and recent turns as fit in the token budget
+     */
+    public List<String> getContext() {
+        String summaryEntry = summary.isEmpty() ? null : SUMMARY_PREFIX + summary;
+        int remaining = tokenBudget - estimateTokens(summaryEntry);
+
+        List<String> turns = new ArrayList<>();
+        Iterator<String> newestFirst = recent.descendingIterator();
+        while (newestFirst.hasNext()) {
+            String turn = newestFirst.next();
+            int tokens = estimateTokens(turn);
+            if (tokens > remaining && !turns.isEmpty()) {
+                return finish(summaryEntry, turns);
+            }
+            turns.add(turn);
+            remaining -= tokens;
+        }
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            int tokens = estimateTokens(pending.get(i));
+            if (tokens > remaining) {
+                break;
+            }
+            turns.add(pending.get(i));
+            remaining -= tokens;
+        }
+        return finish(summaryEntry, turns);
+    }
+
+    private static List<String> finish(String summaryEntry, List<String> newestFirst) {
+        Collections.reverse(newestFirst);
+        if (summaryEntry != null) {
+            newestFirst.add(0, summaryEntry);
+        }
+        return newestFirst;
+    }
+
+    public String getSummary() {
+        return summary;
+    }
+
+    /**
+     * @return How many turns the current summary covers
+     */
+    public int getSummarizedCount() {
+        return summarizedCount;
+    }
+
+    /**
+     * Cancel the summary being made, if any, e.g. because the chat screen is closing.
+     */
+    public void cancel() {
+        if (inFlight != null) {
+            inFlight.cancel(true);
+        }
+    }
+
+    private void summarizeIfNeeded() {
+        if (summarizing || pending.isEmpty()) {
+            return;
+        }
+        summarizing = true;
+        List<String> batch = new ArrayList<>(pending);
+        ListenableFuture<String> future = summarizer.summarize(summary, batch);
+        inFlight = future;
+        Futures.addCallback(future, new FutureCallback<String>() {
+            @Override
+            public void onSuccess(String result) {
+                summarizing = false;
+                inFlight = null;
+                if (result == null || result.trim().isEmpty()) {
+                    Log.w(TAG, "Empty summary for " + batch.size() + " turns");
+                    return;
+                }
+                summary = result.trim();
+                summarizedCount += batch.size();
+                pending.subList(0, batch.size()).clear();
+                // Turns that arrived while this summary was being made
+                summarizeIfNeeded();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                summarizing = false;
+                inFlight = null;
+                if (future.isCancelled()) {
+                    return;
+                }
+                Log.w(TAG, "Summarizing " + batch.size() + " turns failed: " + t.getMessage());
+                // Retried on the next add; getContext keeps the request bounded meanwhile
+            }
+        }, callbackExecutor);
+    }
+}
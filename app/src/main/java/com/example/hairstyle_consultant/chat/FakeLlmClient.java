@@ -0,0 +1,221 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.example.hairstyle_consultant.HairStyleApplication;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offline {@link LlmClient} for exercising and measuring the chat pipeline without the API.
+ *
+ * Responses are made of words from a fixed vocabulary, chosen by a Random seeded with the seed
+ * and the prompt, so the same prompt always gets the same response, latency profile and
+ * injected failures. The first token arrives after firstTokenLatencyMs and the rest at
+ * tokensPerSecond; a failing call fails partway through its response.
+ *
+ * Usage:
+ * LlmClient client = FakeLlmClient.builder()
+ *     .firstTokenLatencyMs(400)
+ *     .tokensPerSecond(60)
+ *     .failureRate(0.05)
+ *     .build();
+ */
+public class FakeLlmClient implements LlmClient {
+    private static final String[] VOCABULARY = {
+            "tóc", "của", "bạn", "nên", "dùng", "dầu", "gội", "dầu xả", "dưỡng", "ẩm", "nhẹ", "nhàng",
+            "mỗi", "tuần", "hai", "lần", "tránh", "nhiệt", "độ", "cao", "sản", "phẩm", "phù", "hợp",
+            "với", "da", "đầu", "khô", "gàu", "và", "giúp", "phục", "hồi", "hư", "tổn", "mềm", "mượt"
+    };
+
+    private final long firstTokenLatencyNanos;
+    private final long tokenIntervalNanos;
+    private final int responseTokens;
+    private final double failureRate;
+    private final long seed;
+    private final ScheduledExecutorService scheduler = HairStyleApplication.getExecutors().scheduler();
+
+    private FakeLlmClient(Builder builder) {
+        this.firstTokenLatencyNanos = TimeUnit.MILLISECONDS.toNanos(builder.firstTokenLatencyMs);
+        this.tokenIntervalNanos = TimeUnit.SECONDS.toNanos(1) / builder.tokensPerSecond;
+        this.responseTokens = builder.responseTokens;
+        this.failureRate = builder.failureRate;
+        this.seed = builder.seed;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * What one call will do, decided up front from the prompt.
+     */
+    private class Script {
+        final String[] tokens = new String[responseTokens];
+        // Index of the token at which the call fails, or -1
+        final int failAt;
+
+        Script(List<String> parts) {
+            Random random = new Random(seed * 31 + parts.hashCode());
+            for (int i = 0; i < tokens.length; i++) {
+                tokens[i] = (i == 0 ? "" : " ") + VOCABULARY[random.nextInt(VOCABULARY.length)];
+            }
+            failAt = random.nextDouble() < failureRate ? random.nextInt(tokens.length) : -1;
+        }
+
+        long totalNanos() {
+            int emitted = failAt >= 0 ? failAt : tokens.length;
+            return firstTokenLatencyNanos + Math.max(0, emitted - 1) * tokenIntervalNanos;
+        }
+
+        String text() {
+            StringBuilder text = new StringBuilder();
+            for (String token : tokens) {
+                text.append(token);
+            }
+            return text.toString();
+        }
+    }
+
+    @Override
+    public ListenableFuture<String> generate(List<String> parts) {
+        Script script = new Script(parts);
+        SettableFuture<String> result = SettableFuture.create();
+        ScheduledFuture<?> completion = scheduler.schedule(() -> {
+            if (script.failAt >= 0) {
+                result.setException(new IOException("Injected failure"));
+            } else {
+                result.set(script.text());
+            }
+        }, script.totalNanos(), TimeUnit.NANOSECONDS);
+        result.addListener(() -> {
+            if (result.isCancelled()) {
+                completion.cancel(false);
+            }
+        }, MoreExecutors.directExecutor());
+        return result;
+    }
+
+    /**
+     * The publisher emits at its own pace and ignores demand; subscribers in this app always
+     * request everything.
+     */
+    @Override
+    public Publisher<String> generateStream(List<String> parts) {
+        return subscriber -> {
+            Emission emission = new Emission(new Script(parts), subscriber);
+            subscriber.onSubscribe(emission);
+            emission.schedule(firstTokenLatencyNanos);
+        };
+    }
+
+    private class Emission implements Subscription {
+        private final Script script;
+        private final Subscriber<? super String> subscriber;
+        private int next;
+        private volatile boolean cancelled;
+        private volatile ScheduledFuture<?> pending;
+
+        Emission(Script script, Subscriber<? super String> subscriber) {
+            this.script = script;
+            this.subscriber = subscriber;
+        }
+
+        void schedule(long delayNanos) {
+            if (!cancelled) {
+                pending = scheduler.schedule(this::emit, delayNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        // Runs on the single scheduler thread, one token at a time
+        private void emit() {
+            if (cancelled) {
+                return;
+            }
+            if (next == script.failAt) {
+                cancelled = true;
+                subscriber.onError(new IOException("Injected failure"));
+                return;
+            }
+            subscriber.onNext(script.tokens[next++]);
+            if (next == script.tokens.length) {
+                cancelled = true;
+                subscriber.onComplete();
+                return;
+            }
+            schedule(tokenIntervalNanos);
+        }
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            ScheduledFuture<?> current = pending;
+            if (current != null) {
+                current.cancel(false);
+            }
+        }
+    }
+
+    public static class Builder {
+        private long firstTokenLatencyMs = 300;
+        private int tokensPerSecond = 50;
+        private int responseTokens = 120;
+        private double failureRate;
+        private long seed = 42;
+
+        private Builder() {
+        }
+
+        public Builder firstTokenLatencyMs(long firstTokenLatencyMs) {
+            this.firstTokenLatencyMs = firstTokenLatencyMs;
+            return this;
+        }
+
+        public Builder tokensPerSecond(int tokensPerSecond) {
+            this.tokensPerSecond = tokensPerSecond;
+            return this;
+        }
+
+        public Builder responseTokens(int responseTokens) {
+            this.responseTokens = responseTokens;
+            return this;
+        }
+
+        /**
+         * @param failureRate Fraction of calls, between 0 and 1, that fail partway through
+         */
+        public Builder failureRate(double failureRate) {
+            this.failureRate = failureRate;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public FakeLlmClient build() {
+            if (tokensPerSecond <= 0 || responseTokens <= 0) {
+                throw new IllegalArgumentException("tokensPerSecond and responseTokens must be positive");
+            }
+            if (failureRate < 0 || failureRate > 1) {
+                throw new IllegalArgumentException("failureRate must be between 0 and 1");
+            }
+            return new FakeLlmClient(this);
+        }
+    }
+}
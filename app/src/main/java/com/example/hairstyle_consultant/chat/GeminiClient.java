@@ -0,0 +1,87 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.google.ai.client.generativeai.GenerativeModel;
+import com.google.ai.client.generativeai.java.GenerativeModelFutures;
+import com.google.ai.client.generativeai.type.Content;
+import com.google.ai.client.generativeai.type.GenerateContentResponse;
+import com.google.ai.client.generativeai.type.RequestTimeoutException;
+import com.google.ai.client.generativeai.type.ServerException;
+import com.google.ai.client.generativeai.type.UnknownException;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * {@link LlmClient} backed by the Gemini API.
+ */
+public class GeminiClient implements LlmClient {
+    public static final String DEFAULT_MODEL = "gemini-1.5-flash";
+
+    private final GenerativeModelFutures model;
+
+    public GeminiClient(String modelName, String apiKey) {
+        this.model = GenerativeModelFutures.from(new GenerativeModel(modelName, apiKey));
+    }
+
+    /**
+     * @return true for errors a retry may fix: network failures, timeouts and server errors
+     * (including rate limiting). Invalid keys, blocked prompts and the like are not retried.
+     */
+    public static boolean isTransient(Throwable t) {
+        if (t instanceof IOException || t instanceof TimeoutException || t instanceof ServerException
+                || t instanceof RequestTimeoutException) {
+            return true;
+        }
+        // The SDK wraps anything it does not recognise, network failures included
+        return t instanceof UnknownException && t.getCause() instanceof IOException;
+    }
+
+    @Override
+    public ListenableFuture<String> generate(List<String> parts) {
+        return Futures.transform(model.generateContent(toContent(parts)), GenerateContentResponse::getText,
+                MoreExecutors.directExecutor());
+    }
+
+    @Override
+    public Publisher<String> generateStream(List<String> parts) {
+        Publisher<GenerateContentResponse> responses = model.generateContentStream(toContent(parts));
+        return subscriber -> responses.subscribe(new Subscriber<GenerateContentResponse>() {
+            @Override
+            public void onSubscribe(Subscription subscription) {
+                subscriber.onSubscribe(subscription);
+            }
+
+            @Override
+            public void onNext(GenerateContentResponse chunk) {
+                String text = chunk.getText();
+                subscriber.onNext(text == null ? "" : text);
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                subscriber.onError(t);
+            }
+
+            @Override
+            public void onComplete() {
+                subscriber.onComplete();
+            }
+        });
+    }
+
+    private static Content toContent(List<String> parts) {
+        Content.Builder builder = new Content.Builder();
+        for (String part : parts) {
+            builder.addText(part);
+        }
+        return builder.build();
+    }
+}
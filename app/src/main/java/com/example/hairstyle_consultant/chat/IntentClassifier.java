@@ -0,0 +1,213 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.utils.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Recognises the routine chat questions that local data can answer (a product's price or
+ * stock, the products in a category, the user's own hair profile) by keyword and pattern
+ * matching on folded text, in Vietnamese and English.
+ *
+ * It is deliberately conservative: a message asking for advice or an explanation is always
+ * {@link Intent#OPEN_ENDED}, even if it also names a product, so that the model answers it.
+ */
+public class IntentClassifier {
+    public enum Intent {
+        PRICE,
+        STOCK,
+        CATEGORY,
+        PROFILE,
+        OPEN_ENDED
+    }
+
+    public static class Classification {
+        public final Intent intent;
+        // Products named in the message, best match first; empty if none
+        public final List<Product> products;
+        // Catalog category named in the message, or null
+        public final String category;
+        // The message matched English phrases rather than Vietnamese ones
+        public final boolean english;
+
+        Classification(Intent intent, List<Product> products, String category, boolean english) {
+            this.intent = intent;
+            this.products = products;
+            this.category = category;
+            this.english = english;
+        }
+    }
+
+    private static final Classification OPEN_ENDED =
+            new Classification(Intent.OPEN_ENDED, Collections.emptyList(), null, false);
+
+    // Folded phrases; the message is matched on whole tokens
+    private static final String[] ADVICE_VI = {
+            "nen", "tu van", "phu hop", "tai sao", "vi sao", "lam sao", "the nao", "co tot", "so sanh",
+            "khac nhau", "cach dung", "su dung", "giup", "goi y", "de xuat", "hop voi", "danh gia",
+            "bao nhieu lan", "bao nhieu lau"
+    };
+    private static final String[] ADVICE_EN = {
+            "should", "recommend", "suggest", "advice", "best", "better", "why", "how to", "how do",
+            "compare", "difference", "suitable", "good for", "help"
+    };
+    // Not a bare "giá" or "bao nhiêu": "đánh giá", "bao nhiêu lần" are questions of their own
+    private static final String[] PRICE_VI = {
+            "gia bao nhieu", "gia ca", "gia tien", "gia la", "gia cua", "bang gia", "bao nhieu tien",
+            "het bao nhieu"
+    };
+    private static final String[] PRICE_EN = {"price", "prices", "cost", "how much"};
+    private static final String[] STOCK_VI = {"con hang", "het hang", "ton kho", "con khong", "co san", "con ban"};
+    private static final String[] STOCK_EN = {"in stock", "out of stock", "available", "stock", "sold out"};
+    private static final String[] LIST_VI = {
+            "nhung san pham", "cac san pham", "san pham nao", "danh sach", "liet ke", "co nhung", "cac loai",
+            "nhung loai", "loai nao"
+    };
+    private static final String[] LIST_EN = {"list", "show me", "what products", "which products", "do you have"};
+    private static final String[] PROFILE_VI = {
+            "thong tin toc cua toi", "ho so toc", "ho so cua toi", "toc cua toi la", "thong tin cua toi"
+    };
+    private static final String[] PROFILE_EN = {"my profile", "my hair profile", "my hair type", "my hair info"};
+
+    // Folded phrase -> catalog category it names; catalog category names themselves also match
+    private static final Map<String, String> CATEGORY_ALIASES = new LinkedHashMap<>();
+
+    static {
+        CATEGORY_ALIASES.put("dau goi", "Shampoo");
+        CATEGORY_ALIASES.put("dau xa", "Conditioner");
+        CATEGORY_ALIASES.put("tao kieu", "Styling");
+        CATEGORY_ALIASES.put("duong toc", "Treatment");
+        CATEGORY_ALIASES.put("dieu tri", "Treatment");
+        CATEGORY_ALIASES.put("phuc hoi", "Treatment");
+        CATEGORY_ALIASES.put("dung cu", "Tools");
+        CATEGORY_ALIASES.put("may say", "Tools");
+        CATEGORY_ALIASES.put("phu kien", "Accessories");
+        CATEGORY_ALIASES.put("shampoos", "Shampoo");
+        CATEGORY_ALIASES.put("conditioners", "Conditioner");
+        CATEGORY_ALIASES.put("treatments", "Treatment");
+        CATEGORY_ALIASES.put("tool", "Tools");
+        CATEGORY_ALIASES.put("accessory", "Accessories");
+    }
+
+    // Product name tokens shorter than this ("de", "3") are too common to identify a product
+    private static final int MIN_NAME_TOKEN_LENGTH = 3;
+    private static final int MIN_NAME_TOKENS_MATCHED = 2;
+
+    /**
+     * @param message The user's message
+     * @param products The current catalog
+     */
+    public Classification classify(String message, List<Product> products) {
+        // Padded with spaces so phrases only match whole tokens
+        String text = " " + String.join(" ", TextNormalizer.tokenize(message)) + " ";
+        if (text.trim().isEmpty()) {
+            return OPEN_ENDED;
+        }
+        if (containsAny(text, ADVICE_VI) || containsAny(text, ADVICE_EN)) {
+            return OPEN_ENDED;
+        }
+
+        if (containsAny(text, PROFILE_VI)) {
+            return new Classification(Intent.PROFILE, Collections.emptyList(), null, false);
+        }
+        if (containsAny(text, PROFILE_EN)) {
+            return new Classification(Intent.PROFILE, Collections.emptyList(), null, true);
+        }
+
+        List<Product> named = findProducts(text, products);
+        String category = findCategory(text, products);
+        // "Giá dầu gội X?" and "dầu gội X giá?" name the price only at either end
+        boolean priceVi = containsAny(text, PRICE_VI) || text.startsWith(" gia ") || text.endsWith(" gia ");
+        boolean priceEn = containsAny(text, PRICE_EN);
+        boolean stockVi = containsAny(text, STOCK_VI);
+        boolean stockEn = containsAny(text, STOCK_EN);
+
+        if (!named.isEmpty()) {
+            // Stock first: "còn hàng không, giá bao nhiêu" is mostly about whether it can be bought
+            if (stockVi || stockEn) {
+                return new Classification(Intent.STOCK, named, category, stockEn && !stockVi);
+            }
+            if (priceVi || priceEn) {
+                return new Classification(Intent.PRICE, named, category, priceEn && !priceVi);
+            }
+            return OPEN_ENDED;
+        }
+        if (category != null) {
+            boolean listVi = containsAny(text, LIST_VI);
+            boolean listEn = containsAny(text, LIST_EN);
+            if (priceVi || priceEn) {
+                return new Classification(Intent.PRICE, Collections.emptyList(), category, priceEn && !priceVi);
+            }
+            if (listVi || listEn || stockVi || stockEn) {
+                return new Classification(Intent.CATEGORY, Collections.emptyList(), category,
+                        (listEn || stockEn) && !listVi && !stockVi);
+            }
+        }
+        return OPEN_ENDED;
+    }
+
+    /**
+     * @return Products most of whose distinctive name tokens appear in the message, best first
+     */
+    private static List<Product> findProducts(String text, List<Product> products) {
+        List<Product> matches = new ArrayList<>();
+        int best = 0;
+        for (Product product : products) {
+            int matched = 0;
+            int significant = 0;
+            for (String token : TextNormalizer.tokenize(product.getName())) {
+                if (token.length() < MIN_NAME_TOKEN_LENGTH) {
+                    continue;
+                }
+                significant++;
+                if (text.contains(" " + token + " ")) {
+                    matched++;
+                }
+            }
+            if (significant == 0 || matched < Math.min(MIN_NAME_TOKENS_MATCHED, significant)) {
+                continue;
+            }
+            if (matched > best) {
+                best = matched;
+                matches.clear();
+            }
+            if (matched == best) {
+                matches.add(product);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return The catalog category named in the message, or null
+     */
+    private static String findCategory(String text, List<Product> products) {
+        for (Product product : products) {
+            String category = product.getCategory();
+            if (category != null && !category.isEmpty()
+                    && text.contains(" " + String.join(" ", TextNormalizer.tokenize(category)) + " ")) {
+                return category;
+            }
+        }
+        for (Map.Entry<String, String> alias : CATEGORY_ALIASES.entrySet()) {
+            if (text.contains(" " + alias.getKey() + " ")) {
+                return alias.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static boolean containsAny(String text, String[] phrases) {
+        for (String phrase : phrases) {
+            if (text.contains(" " + phrase + " ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
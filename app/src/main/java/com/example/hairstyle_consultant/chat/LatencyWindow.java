@@ -0,0 +1,57 @@
+package com.example.hairstyle_consultant.chat;
+
+import java.util.Arrays;
+
+/**
+ * The most recent latency samples (or any other per-call measurement, such as token counts)
+ * in a fixed-size ring buffer, for rolling percentiles. Thread-safe.
+ */
+public class LatencyWindow {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    public LatencyWindow(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long latencyMs) {
+        samples[next] = latencyMs;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * @return The mean of the samples in the window, or -1 if it is empty
+     */
+    public synchronized long mean() {
+        if (count == 0) {
+            return -1;
+        }
+        long sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / count;
+    }
+
+    /**
+     * @param percentile Between 1 and 100
+     * @return The nearest-rank percentile of the samples in the window, or -1 if it is empty
+     */
+    public synchronized long percentile(int percentile) {
+        if (count == 0) {
+            return -1;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * count) - 1;
+        return sorted[Math.max(0, Math.min(count - 1, index))];
+    }
+}
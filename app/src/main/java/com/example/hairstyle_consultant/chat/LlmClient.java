@@ -0,0 +1,28 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+import org.reactivestreams.Publisher;
+
+import java.util.List;
+
+/**
+ * A text generation model. The chat pipeline only talks to the model through this interface,
+ * so it can run against {@link GeminiClient} or, offline, against {@link FakeLlmClient}.
+ */
+public interface LlmClient {
+    /**
+     * @param parts Prompt parts in order. For chat turns the first is always
+     *              {@link PromptAssembler#STATIC_PREFIX}, so a client whose API supports context
+     *              caching can send it as cached content.
+     * @return The complete response text
+     */
+    ListenableFuture<String> generate(List<String> parts);
+
+    /**
+     * @param parts Prompt parts in order
+     * @return The response as text chunks, in order; cancelling the subscription cancels the
+     * generation
+     */
+    Publisher<String> generateStream(List<String> parts);
+}
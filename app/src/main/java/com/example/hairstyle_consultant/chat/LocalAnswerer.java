@@ -0,0 +1,115 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.models.User;
+import com.example.hairstyle_consultant.services.ProductCatalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Answers routine questions from the cached catalog and the user's profile, without calling
+ * the model. See {@link IntentClassifier} for what counts as routine.
+ */
+public class LocalAnswerer {
+    // Longer lists are cut off; the user can ask about a narrower set
+    private static final int MAX_LISTED_PRODUCTS = 10;
+
+    private final ProductCatalog catalog;
+    private final IntentClassifier classifier = new IntentClassifier();
+
+    public LocalAnswerer(ProductCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * @param user The user's hair profile, may be null
+     * @return The answer, or null if the model should answer instead
+     */
+    public String answer(String message, User user) {
+        List<Product> products = catalog.getProducts();
+        IntentClassifier.Classification classification = classifier.classify(message, products);
+        boolean en = classification.english;
+        switch (classification.intent) {
+            case PRICE:
+                if (!classification.products.isEmpty()) {
+                    return listProducts(en ? "Prices:\n" : "Giá sản phẩm:\n", classification.products, en);
+                }
+                return listCategory(classification.category, products, en);
+            case STOCK:
+                StringBuilder text = new StringBuilder(en ? "Availability:\n" : "Tình trạng hàng:\n");
+                for (Product product : limit(classification.products)) {
+                    text.append("- ").append(product.getName()).append(": ").append(stock(product, en)).append('\n');
+                }
+                return text.toString().trim();
+            case CATEGORY:
+                return listCategory(classification.category, products, en);
+            case PROFILE:
+                return user == null ? null : profile(user, en);
+            default:
+                return null;
+        }
+    }
+
+    private static String listCategory(String category, List<Product> products, boolean en) {
+        List<Product> inCategory = new ArrayList<>();
+        for (Product product : products) {
+            if (category.equalsIgnoreCase(product.getCategory())) {
+                inCategory.add(product);
+            }
+        }
+        if (inCategory.isEmpty()) {
+            // Nothing local to show; the model can at least explain that
+            return null;
+        }
+        String header = en
+                ? category + " products (" + inCategory.size() + "):\n"
+                : "Các sản phẩm " + category + " (" + inCategory.size() + "):\n";
+        return listProducts(header, inCategory, en);
+    }
+
+    private static String listProducts(String header, List<Product> products, boolean en) {
+        StringBuilder text = new StringBuilder(header);
+        for (Product product : limit(products)) {
+            text.append("- ").append(product.getName()).append(" (").append(product.getBrand()).append("): ")
+                    .append(String.format(Locale.ROOT, "%.0f", product.getPrice())).append(" VNĐ, ")
+                    .append(stock(product, en)).append('\n');
+        }
+        if (products.size() > MAX_LISTED_PRODUCTS) {
+            text.append(en ? "…and " : "…và ").append(products.size() - MAX_LISTED_PRODUCTS)
+                    .append(en ? " more." : " sản phẩm khác.");
+        }
+        return text.toString().trim();
+    }
+
+    private static List<Product> limit(List<Product> products) {
+        return products.size() > MAX_LISTED_PRODUCTS ? products.subList(0, MAX_LISTED_PRODUCTS) : products;
+    }
+
+    private static String stock(Product product, boolean en) {
+        if (!product.isAvailable() || product.getStockAmount() <= 0) {
+            return en ? "out of stock" : "hết hàng";
+        }
+        return en ? "in stock (" + product.getStockAmount() + ")" : "còn hàng (" + product.getStockAmount() + ")";
+    }
+
+    private static String profile(User user, boolean en) {
+        if (en) {
+            return "Your hair profile:\n" +
+                    "- Style: " + user.getHairStyle() + "\n" +
+                    "- Quality: " + user.getHairQuality() + "\n" +
+                    "- Length: " + user.getHairLength() + "\n" +
+                    "- Color: " + user.getHairColor() + "\n" +
+                    "- Texture: " + user.getHairTexture() + "\n" +
+                    "- Concerns: " + user.getHairConcerns();
+        }
+        return "Thông tin tóc của bạn:\n" +
+                "- Kiểu tóc: " + user.getHairStyle() + "\n" +
+                "- Chất lượng: " + user.getHairQuality() + "\n" +
+                "- Độ dài: " + user.getHairLength() + "\n" +
+                "- Màu sắc: " + user.getHairColor() + "\n" +
+                "- Kết cấu: " + user.getHairTexture() + "\n" +
+                "- Vấn đề: " + user.getHairConcerns();
+    }
+}
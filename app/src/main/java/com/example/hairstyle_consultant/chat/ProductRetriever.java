@@ -0,0 +1,132 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.models.User;
+import com.example.hairstyle_consultant.services.ProductCatalog;
+import com.example.hairstyle_consultant.utils.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Picks the few catalog products worth showing the model for one turn.
+ *
+ * The user's message and their hair profile are turned into a weighted bag of terms and
+ * ranked with BM25 over the catalog's search index. Vietnamese hair-care words are expanded
+ * to the English terms the catalog is written in, so "dầu gội trị gàu" finds anti-dandruff
+ * shampoo. Prompt size stays at topK products however large the catalog grows.
+ */
+public class ProductRetriever {
+    public static final int DEFAULT_TOP_K = 8;
+
+    private static final float MESSAGE_WEIGHT = 1.0f;
+    private static final float CONCERNS_WEIGHT = 0.6f;
+    private static final float PROFILE_WEIGHT = 0.3f;
+
+    // Folded Vietnamese word (one or two syllables) -> catalog terms it stands for. Syllables
+    // that mean something else on their own are only listed in context: "dầu" alone is oil,
+    // but "dầu gội" is shampoo; "màu" can be a sample, "say" drunk, "mỏng" hope.
+    private static final Map<String, String[]> SYNONYMS = new HashMap<>();
+
+    static {
+        SYNONYMS.put("dau goi", new String[]{"shampoo"});
+        SYNONYMS.put("dau xa", new String[]{"conditioner"});
+        SYNONYMS.put("dau duong", new String[]{"oil"});
+        SYNONYMS.put("tinh dau", new String[]{"oil"});
+        SYNONYMS.put("gau", new String[]{"dandruff", "scalp"});
+        SYNONYMS.put("toc kho", new String[]{"dry", "moisture", "hydrating"});
+        SYNONYMS.put("kho xo", new String[]{"dry", "damaged", "repair"});
+        SYNONYMS.put("xo", new String[]{"dry", "damaged", "repair"});
+        SYNONYMS.put("hu ton", new String[]{"damaged", "repair"});
+        SYNONYMS.put("toc hu", new String[]{"damaged", "repair"});
+        SYNONYMS.put("rung", new String[]{"growth"});
+        SYNONYMS.put("toc mong", new String[]{"fine", "volume"});
+        SYNONYMS.put("phong toc", new String[]{"volume"});
+        SYNONYMS.put("lam phong", new String[]{"volume"});
+        SYNONYMS.put("nhuom", new String[]{"color"});
+        SYNONYMS.put("mau toc", new String[]{"color"});
+        SYNONYMS.put("giu mau", new String[]{"color"});
+        SYNONYMS.put("xoan", new String[]{"waves", "texture"});
+        SYNONYMS.put("nhiet", new String[]{"heat"});
+        SYNONYMS.put("may say", new String[]{"dryer"});
+        SYNONYMS.put("say toc", new String[]{"dryer"});
+        SYNONYMS.put("may duoi", new String[]{"flat", "iron"});
+        SYNONYMS.put("duoi toc", new String[]{"flat", "iron"});
+        SYNONYMS.put("tao kieu", new String[]{"styling"});
+        SYNONYMS.put("giu nep", new String[]{"hold"});
+        SYNONYMS.put("kep", new String[]{"clips"});
+        SYNONYMS.put("khan", new String[]{"scarf"});
+    }
+
+    private final ProductCatalog catalog;
+    private final int topK;
+
+    public ProductRetriever(ProductCatalog catalog, int topK) {
+        this.catalog = catalog;
+        this.topK = topK;
+    }
+
+    /**
+     * @param userMessage The message being answered
+     * @param user The user's hair profile, may be null
+     * @return Up to topK products, most relevant first. Falls back to the first available
+     * products when nothing matches, so the model always has something to recommend from.
+     */
+    public List<Product> retrieve(String userMessage, User user) {
+        Map<String, Float> query = new HashMap<>();
+        addTerms(query, userMessage, MESSAGE_WEIGHT);
+        if (user != null) {
+            addTerms(query, user.getHairConcerns(), CONCERNS_WEIGHT);
+            addTerms(query, user.getHairQuality(), PROFILE_WEIGHT);
+            addTerms(query, user.getHairTexture(), PROFILE_WEIGHT);
+            addTerms(query, user.getHairStyle(), PROFILE_WEIGHT);
+            addTerms(query, user.getHairColor(), PROFILE_WEIGHT);
+        }
+
+        List<Product> ranked = catalog.rank(query, topK);
+        if (!ranked.isEmpty()) {
+            return ranked;
+        }
+        List<Product> fallback = new ArrayList<>(topK);
+        for (Product product : catalog.getProducts()) {
+            if (product.isAvailable()) {
+                fallback.add(product);
+                if (fallback.size() == topK) {
+                    break;
+                }
+            }
+        }
+        return fallback;
+    }
+
+    private static void addTerms(Map<String, Float> query, String text, float weight) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        for (int i = 0; i < tokens.size(); i++) {
+            addTerm(query, tokens.get(i), weight);
+            // A two-syllable word wins over its first syllable, and consumes the second
+            String[] expansions = i + 1 < tokens.size()
+                    ? SYNONYMS.get(tokens.get(i) + " " + tokens.get(i + 1))
+                    : null;
+            if (expansions != null) {
+                addTerm(query, tokens.get(++i), weight);
+            } else {
+                expansions = SYNONYMS.get(tokens.get(i));
+            }
+            if (expansions != null) {
+                for (String expansion : expansions) {
+                    addTerm(query, expansion, weight);
+                }
+            }
+        }
+    }
+
+    private static void addTerm(Map<String, Float> query, String term, float weight) {
+        Float current = query.get(term);
+        // Keep the strongest weight; repeating a word should not outweigh the message
+        if (current == null || current < weight) {
+            query.put(term, weight);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.example.hairstyle_consultant.models.Product;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Builds the text sent ahead of the conversation.
+ *
+ * The prompt is ordered from most to least shared, so that consecutive requests share the
+ * longest possible identical prefix, which is what model-side prompt caching reuses:
+ * 1. {@link #STATIC_PREFIX}: the instructions, identical for every user and every turn
+ * 2. The user's hair profile, cached until the profile changes
+ * 3. The products retrieved for the current turn; the text of each product is rendered once
+ *    and reused from a per-product fragment cache until the catalog replaces that product
+ * 4. The conversation history
+ *
+ * Not thread-safe; use it from the main thread.
+ */
+public class PromptAssembler {
+    /**
+     * Always the first prompt part, byte for byte. Keep anything user- or turn-specific out
+     * of it, or requests stop sharing a prefix.
+     */
+    public static final String STATIC_PREFIX = "Bạn là một chuyên gia tư vấn tóc thân thiện và chuyên nghiệp. " +
+            "Hãy trả lời ngắn gọn, súc tích bằng tiếng Việt. " +
+            "Khi tư vấn, hãy tuân theo các nguyên tắc và cân nhắc các thông tin sau:\n\n" +
+            "1. Nguyên tắc tư vấn:\n" +
+            "- Luôn đề cập đến tên người dùng khi trả lời\n" +
+            "- Đưa ra lời khuyên dựa trên tình trạng tóc hiện tại\n" +
+            "- Chỉ đề xuất sản phẩm có trong danh sách sản phẩm có sẵn\n" +
+            "- Giải thích lý do tại sao sản phẩm phù hợp với tóc của họ\n" +
+            "- Nếu không có sản phẩm phù hợp, hãy nói rõ và đề xuất giải pháp thay thế\n" +
+            "- Luôn thân thiện và chuyên nghiệp trong cách trả lời\n" +
+            "- Duy trì ngữ cảnh cuộc hội thoại và tham chiếu đến các câu hỏi trước đó khi phù hợp";
+    private static final String PROFILE_HEADER = "2. Thông tin tóc của người dùng:\n";
+    private static final String PRODUCTS_HEADER = "3. Danh sách sản phẩm có sẵn liên quan đến câu hỏi:\n";
+    private static final String NO_PRODUCTS = "(Không có sản phẩm phù hợp)\n";
+
+    /**
+     * Everything sent for one turn.
+     */
+    public static class Prompt {
+        public final String profileSection;
+        public final String productSection;
+        // STATIC_PREFIX, profileSection, productSection, then the history entries
+        public final List<String> parts;
+
+        Prompt(String profileSection, String productSection, List<String> history) {
+            this.profileSection = profileSection;
+            this.productSection = productSection;
+            List<String> parts = new ArrayList<>(history.size() + 3);
+            parts.add(STATIC_PREFIX);
+            parts.add(profileSection);
+            parts.add(productSection);
+            parts.addAll(history);
+            this.parts = Collections.unmodifiableList(parts);
+        }
+    }
+
+    private static class Fragment {
+        final Product product;
+        final String text;
+
+        Fragment(Product product, String text) {
+            this.product = product;
+            this.text = text;
+        }
+    }
+
+    private final Map<String, Fragment> fragments = new HashMap<>();
+    private String userInfo = "";
+    private long profileVersion;
+    private long catalogVersion = -1;
+
+    private String cachedProfileSection;
+    private long cachedProfileVersion = -1;
+
+    /**
+     * @param userInfo Rendered hair profile of the current user
+     */
+    public void setUserProfile(String userInfo) {
+        String value = userInfo == null ? "" : userInfo;
+        if (!value.equals(this.userInfo)) {
+            this.userInfo = value;
+            profileVersion++;
+        }
+    }
+
+    /**
+     * Drop the fragments of products that were removed or replaced. Fragments are rendered
+     * lazily by {@link #renderProducts}, so this does not render anything.
+     * @param products Current catalog
+     * @param version Catalog version the list belongs to; an unchanged version is a no-op
+     */
+    public void setCatalog(List<Product> products, long version) {
+        if (version == catalogVersion) {
+            return;
+        }
+        Map<String, Product> current = new HashMap<>(products.size() * 2);
+        for (Product product : products) {
+            current.put(product.getId(), product);
+        }
+        Iterator<Map.Entry<String, Fragment>> iterator = fragments.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, Fragment> entry = iterator.next();
+            if (current.get(entry.getKey()) != entry.getValue().product) {
+                iterator.remove();
+            }
+        }
+        catalogVersion = version;
+    }
+
+    public long getProfileVersion() {
+        return profileVersion;
+    }
+
+    public long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    /**
+     * @return The user's hair profile section; the same instance until the profile changes
+     */
+    public String getProfileSection() {
+        if (cachedProfileSection == null || cachedProfileVersion != profileVersion) {
+            cachedProfileSection = PROFILE_HEADER + userInfo;
+            cachedProfileVersion = profileVersion;
+        }
+        return cachedProfileSection;
+    }
+
+    /**
+     * @param products Products retrieved for the current turn, most relevant first
+     * @return The product section of the prompt
+     */
+    public String renderProducts(List<Product> products) {
+        if (products.isEmpty()) {
+            return PRODUCTS_HEADER + NO_PRODUCTS;
+        }
+        StringBuilder text = new StringBuilder(PRODUCTS_HEADER.length() + products.size() * 256)
+                .append(PRODUCTS_HEADER);
+        for (Product product : products) {
+            text.append(fragmentFor(product));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @param products Products retrieved for this turn, most relevant first
+     * @param history Conversation entries to send, oldest first
+     */
+    public Prompt build(List<Product> products, List<String> history) {
+        return new Prompt(getProfileSection(), renderProducts(products), history);
+    }
+
+    /**
+     * Catalog entries are immutable once loaded (the catalog replaces the instance on every
+     * change), so an identical instance means the cached text is still valid.
+     */
+    private String fragmentFor(Product product) {
+        Fragment fragment = fragments.get(product.getId());
+        if (fragment == null || fragment.product != product) {
+            fragment = new Fragment(product, renderProduct(product));
+            fragments.put(product.getId(), fragment);
+        }
+        return fragment.text;
+    }
+
+    static String renderProduct(Product product) {
+        return "- " + product.getName() + " (" + product.getBrand() + ")\n" +
+                "  Mô tả: " + product.getDescription() + "\n" +
+                "  Giá: " + String.format(Locale.ROOT, "%.0f", product.getPrice()) + " VNĐ\n" +
+                "  Danh mục: " + product.getCategory() + "\n" +
+                "  Tình trạng: " + (product.isAvailable() ? "Còn hàng" : "Hết hàng") + "\n\n";
+    }
+}
@@ -0,0 +1,538 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.example.hairstyle_consultant.HairStyleApplication;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * Wraps an {@link LlmClient} with retries, hedging and a circuit breaker, and keeps rolling
+ * latency and error statistics against the chat's latency SLO.
+ *
+ * - Retries: transient errors are retried with exponential backoff and full jitter. A stream
+ *   is only retried before its first chunk; after that the text is already on screen.
+ * - Hedging: if a call has not answered (for streams: produced its first chunk) within the
+ *   rolling p95, a duplicate is sent and whichever answers first wins; the other is cancelled.
+ * - Circuit breaker: when too many recent calls failed, calls fail fast with
+ *   {@link CircuitOpenException} for BREAKER_OPEN_MS, then a single trial call decides whether
+ *   to close it again. Callers are expected to show a local fallback answer instead.
+ */
+public class ResilientLlmClient implements LlmClient {
+    private static final String TAG = "ResilientLlmClient";
+    private static final int MAX_ATTEMPTS = 3;
+    private static final long BASE_BACKOFF_MS = 500;
+    private static final long MAX_BACKOFF_MS = 4000;
+    // Hedging waits for this many samples so one slow first call does not set the threshold
+    private static final int MIN_HEDGE_SAMPLES = 20;
+    private static final long DEFAULT_HEDGE_DELAY_MS = 4000;
+    private static final int BREAKER_WINDOW = 20;
+    private static final int BREAKER_MIN_SAMPLES = 10;
+    private static final double BREAKER_FAILURE_RATIO = 0.5;
+    private static final long BREAKER_OPEN_MS = 30000;
+    private static final int LATENCY_WINDOW = 200;
+    // SLO: 95% of turns show their first token within 2 s and finish within 8 s
+    public static final long SLO_FIRST_TOKEN_P95_MS = 2000;
+    public static final long SLO_TURN_P95_MS = 8000;
+
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    public static class CircuitOpenException extends Exception {
+        CircuitOpenException() {
+            super("Too many recent failures; not calling the model for now");
+        }
+    }
+
+    /**
+     * Point-in-time statistics; latencies are -1 until there are samples.
+     */
+    public static class Stats {
+        public final CircuitState state;
+        public final long calls;
+        public final long failures;
+        public final long retries;
+        public final long hedges;
+        public final long hedgeWins;
+        public final long shortCircuited;
+        public final double recentErrorRate;
+        public final long turnP50Ms;
+        public final long turnP95Ms;
+        public final long turnP99Ms;
+        public final long firstTokenP95Ms;
+
+        Stats(ResilientLlmClient client) {
+            state = client.state;
+            calls = client.calls;
+            failures = client.failures;
+            retries = client.retries;
+            hedges = client.hedges;
+            hedgeWins = client.hedgeWins;
+            shortCircuited = client.shortCircuited;
+            recentErrorRate = client.recentErrorRate();
+            turnP50Ms = client.turnLatency.percentile(50);
+            turnP95Ms = client.turnLatency.percentile(95);
+            turnP99Ms = client.turnLatency.percentile(99);
+            firstTokenP95Ms = client.firstTokenLatency.percentile(95);
+        }
+
+        /**
+         * @return true if both p95 latencies are within the SLO (vacuously true with no samples)
+         */
+        public boolean meetsSlo() {
+            return turnP95Ms <= SLO_TURN_P95_MS && firstTokenP95Ms <= SLO_FIRST_TOKEN_P95_MS;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT,
+                    "circuit %s, %d calls, %d failed (recent %.0f%%), %d retries, %d hedges (%d won), "
+                            + "%d short-circuited, turn p50/p95/p99 %d/%d/%d ms, first token p95 %d ms, SLO %s",
+                    state, calls, failures, recentErrorRate * 100, retries, hedges, hedgeWins, shortCircuited,
+                    turnP50Ms, turnP95Ms, turnP99Ms, firstTokenP95Ms, meetsSlo() ? "met" : "missed");
+        }
+    }
+
+    private final LlmClient delegate;
+    private final Predicate<Throwable> isTransient;
+    private final ScheduledExecutorService scheduler = HairStyleApplication.getExecutors().scheduler();
+    private final Random random = new Random();
+    private final LatencyWindow turnLatency = new LatencyWindow(LATENCY_WINDOW);
+    private final LatencyWindow firstTokenLatency = new LatencyWindow(LATENCY_WINDOW);
+
+    // Guarded by this
+    private final boolean[] outcomes = new boolean[BREAKER_WINDOW];
+    private int outcomeCount;
+    private int nextOutcome;
+    private CircuitState state = CircuitState.CLOSED;
+    private long openedAt;
+    private boolean trialInFlight;
+    private long calls;
+    private long failures;
+    private long retries;
+    private long hedges;
+    private long hedgeWins;
+    private long shortCircuited;
+
+    /**
+     * @param isTransient Which errors are worth retrying
+     */
+    public ResilientLlmClient(LlmClient delegate, Predicate<Throwable> isTransient) {
+        this.delegate = delegate;
+        this.isTransient = isTransient;
+    }
+
+    public synchronized Stats getStats() {
+        return new Stats(this);
+    }
+
+    @Override
+    public ListenableFuture<String> generate(List<String> parts) {
+        if (!allowRequest()) {
+            return Futures.immediateFailedFuture(new CircuitOpenException());
+        }
+        SettableFuture<String> result = SettableFuture.create();
+        new Call(parts, result).attempt(1);
+        return result;
+    }
+
+    @Override
+    public Publisher<String> generateStream(List<String> parts) {
+        return subscriber -> {
+            StreamCall call = new StreamCall(parts, subscriber);
+            subscriber.onSubscribe(call);
+            if (!allowRequest()) {
+                call.finished = true;
+                subscriber.onError(new CircuitOpenException());
+                return;
+            }
+            call.attempt(1);
+        };
+    }
+
+    /**
+     * One generate() call across its attempts.
+     */
+    private class Call {
+        private final List<String> parts;
+        private final SettableFuture<String> result;
+        private final long startedAt = SystemClock.elapsedRealtime();
+
+        Call(List<String> parts, SettableFuture<String> result) {
+            this.parts = parts;
+            this.result = result;
+            result.addListener(() -> {
+                if (result.isCancelled()) {
+                    onCancelled();
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        void attempt(int attempt) {
+            if (result.isDone()) {
+                return;
+            }
+            ListenableFuture<String> hedged = hedged();
+            // Cancelling the result cancels whichever attempt is running
+            result.addListener(() -> hedged.cancel(true), MoreExecutors.directExecutor());
+            Futures.addCallback(hedged, new FutureCallback<String>() {
+                @Override
+                public void onSuccess(String text) {
+                    long latency = SystemClock.elapsedRealtime() - startedAt;
+                    turnLatency.record(latency);
+                    firstTokenLatency.record(latency);
+                    recordOutcome(true);
+                    result.set(text);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    if (result.isDone()) {
+                        return;
+                    }
+                    if (attempt < MAX_ATTEMPTS && isTransient.test(t)) {
+                        scheduleRetry(attempt, () -> attempt(attempt + 1));
+                        return;
+                    }
+                    recordOutcome(false);
+                    result.setException(t);
+                }
+            }, MoreExecutors.directExecutor());
+        }
+
+        /**
+         * @return The first successful answer of the primary call and, if it is slow, a duplicate
+         */
+        private ListenableFuture<String> hedged() {
+            SettableFuture<String> winner = SettableFuture.create();
+            List<ListenableFuture<String>> running = new ArrayList<>(2);
+            Runnable launch = new Runnable() {
+                @Override
+                public void run() {
+                    ListenableFuture<String> call;
+                    boolean isHedge;
+                    synchronized (running) {
+                        if (winner.isDone()) {
+                            return;
+                        }
+                        isHedge = !running.isEmpty();
+                        call = delegate.generate(parts);
+                        running.add(call);
+                    }
+                    Futures.addCallback(call, new FutureCallback<String>() {
+                        @Override
+                        public void onSuccess(String text) {
+                            if (winner.set(text) && isHedge) {
+                                countHedgeWin();
+                            }
+                        }
+
+                        @Override
+                        public void onFailure(Throwable t) {
+                            synchronized (running) {
+                                running.remove(call);
+                                // Fail once nothing is left running; a hedge not yet sent is
+                                // not waited for, the retry logic takes over instead
+                                if (!running.isEmpty()) {
+                                    return;
+                                }
+                            }
+                            winner.setException(t);
+                        }
+                    }, MoreExecutors.directExecutor());
+                }
+            };
+            launch.run();
+            ScheduledFuture<?> hedgeTimer = scheduler.schedule(() -> {
+                if (!winner.isDone()) {
+                    countHedge();
+                    launch.run();
+                }
+            }, hedgeDelayMs(turnLatency), TimeUnit.MILLISECONDS);
+            winner.addListener(() -> {
+                hedgeTimer.cancel(false);
+                synchronized (running) {
+                    for (ListenableFuture<String> call : running) {
+                        call.cancel(true);
+                    }
+                }
+            }, MoreExecutors.directExecutor());
+            return winner;
+        }
+    }
+
+    /**
+     * One generateStream() subscription across its attempts. The first attempt, primary or
+     * hedge, to produce a chunk wins and is the only one forwarded from then on.
+     */
+    private class StreamCall implements Subscription {
+        private final List<String> parts;
+        private final Subscriber<? super String> subscriber;
+        private final long startedAt = SystemClock.elapsedRealtime();
+        // Guarded by this
+        private final List<Subscription> running = new ArrayList<>(2);
+        private Subscription winner;
+        private ScheduledFuture<?> timer;
+        private boolean hedged;
+        private int attempt;
+        volatile boolean finished;
+
+        StreamCall(List<String> parts, Subscriber<? super String> subscriber) {
+            this.parts = parts;
+            this.subscriber = subscriber;
+        }
+
+        synchronized void attempt(int attempt) {
+            if (finished) {
+                return;
+            }
+            this.attempt = attempt;
+            hedged = false;
+            launch();
+            timer = scheduler.schedule(this::hedge, hedgeDelayMs(firstTokenLatency), TimeUnit.MILLISECONDS);
+        }
+
+        private synchronized void hedge() {
+            if (!finished && winner == null && !hedged && !running.isEmpty()) {
+                hedged = true;
+                countHedge();
+                launch();
+            }
+        }
+
+        // Called with the lock held
+        private void launch() {
+            boolean isHedge = !running.isEmpty();
+            delegate.generateStream(parts).subscribe(new Subscriber<String>() {
+                private Subscription self;
+
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    synchronized (StreamCall.this) {
+                        self = subscription;
+                        if (finished || winner != null) {
+                            subscription.cancel();
+                            return;
+                        }
+                        running.add(subscription);
+                    }
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(String chunk) {
+                    synchronized (StreamCall.this) {
+                        if (finished) {
+                            return;
+                        }
+                        if (winner == null) {
+                            winner = self;
+                            firstTokenLatency.record(SystemClock.elapsedRealtime() - startedAt);
+                            if (isHedge) {
+                                countHedgeWin();
+                            }
+                            cancelOthers();
+                        }
+                        if (winner == self) {
+                            subscriber.onNext(chunk);
+                        }
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    synchronized (StreamCall.this) {
+                        if (finished || (winner != null && winner != self)) {
+                            return;
+                        }
+                        running.remove(self);
+                        if (winner == null && !running.isEmpty()) {
+                            // The other attempt may still answer
+                            return;
+                        }
+                        cancelTimer();
+                        if (winner == null && attempt < MAX_ATTEMPTS && isTransient.test(t)) {
+                            int next = attempt + 1;
+                            scheduleRetry(attempt, () -> attempt(next));
+                            return;
+                        }
+                        finished = true;
+                    }
+                    recordOutcome(false);
+                    subscriber.onError(t);
+                }
+
+                @Override
+                public void onComplete() {
+                    synchronized (StreamCall.this) {
+                        if (finished || (winner != null && winner != self)) {
+                            return;
+                        }
+                        finished = true;
+                        cancelTimer();
+                        if (winner == null) {
+                            // An empty response; it still answers the call
+                            firstTokenLatency.record(SystemClock.elapsedRealtime() - startedAt);
+                            winner = self;
+                            cancelOthers();
+                        }
+                    }
+                    turnLatency.record(SystemClock.elapsedRealtime() - startedAt);
+                    recordOutcome(true);
+                    subscriber.onComplete();
+                }
+            });
+        }
+
+        // Called with the lock held
+        private void cancelOthers() {
+            cancelTimer();
+            for (Subscription subscription : running) {
+                if (subscription != winner) {
+                    subscription.cancel();
+                }
+            }
+            running.clear();
+            running.add(winner);
+        }
+
+        private void cancelTimer() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (this) {
+                if (finished) {
+                    return;
+                }
+                finished = true;
+                cancelTimer();
+                for (Subscription subscription : running) {
+                    subscription.cancel();
+                }
+                running.clear();
+            }
+            onCancelled();
+        }
+    }
+
+    private void scheduleRetry(int attempt, Runnable retry) {
+        synchronized (this) {
+            retries++;
+        }
+        // Full jitter: anywhere between 0 and the exponential backoff for this attempt
+        long backoff = Math.min(MAX_BACKOFF_MS, BASE_BACKOFF_MS << (attempt - 1));
+        long delay = (long) (random.nextDouble() * backoff);
+        Log.d(TAG, "Retrying attempt " + (attempt + 1) + " in " + delay + " ms");
+        scheduler.schedule(retry, delay, TimeUnit.MILLISECONDS);
+    }
+
+    private static long hedgeDelayMs(LatencyWindow window) {
+        return window.size() < MIN_HEDGE_SAMPLES ? DEFAULT_HEDGE_DELAY_MS : window.percentile(95);
+    }
+
+    private synchronized void countHedge() {
+        hedges++;
+    }
+
+    private synchronized void countHedgeWin() {
+        hedgeWins++;
+    }
+
+    private synchronized boolean allowRequest() {
+        if (state == CircuitState.OPEN) {
+            if (SystemClock.elapsedRealtime() - openedAt < BREAKER_OPEN_MS) {
+                shortCircuited++;
+                return false;
+            }
+            state = CircuitState.HALF_OPEN;
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            if (trialInFlight) {
+                shortCircuited++;
+                return false;
+            }
+            trialInFlight = true;
+        }
+        calls++;
+        return true;
+    }
+
+    private synchronized void recordOutcome(boolean success) {
+        if (!success) {
+            failures++;
+        }
+        if (state == CircuitState.HALF_OPEN) {
+            trialInFlight = false;
+            if (success) {
+                Log.i(TAG, "Circuit closed");
+                state = CircuitState.CLOSED;
+                outcomeCount = 0;
+                nextOutcome = 0;
+            } else {
+                state = CircuitState.OPEN;
+                openedAt = SystemClock.elapsedRealtime();
+            }
+            return;
+        }
+        outcomes[nextOutcome] = success;
+        nextOutcome = (nextOutcome + 1) % outcomes.length;
+        if (outcomeCount < outcomes.length) {
+            outcomeCount++;
+        }
+        if (state == CircuitState.CLOSED && outcomeCount >= BREAKER_MIN_SAMPLES
+                && recentErrorRate() >= BREAKER_FAILURE_RATIO) {
+            Log.w(TAG, "Circuit opened: " + Math.round(recentErrorRate() * 100) + "% of recent calls failed");
+            state = CircuitState.OPEN;
+            openedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    private synchronized void onCancelled() {
+        // A cancelled trial says nothing about the model; let the next call try instead
+        if (state == CircuitState.HALF_OPEN) {
+            trialInFlight = false;
+        }
+    }
+
+    private synchronized double recentErrorRate() {
+        if (outcomeCount == 0) {
+            return 0;
+        }
+        int failed = 0;
+        for (int i = 0; i < outcomeCount; i++) {
+            if (!outcomes[i]) {
+                failed++;
+            }
+        }
+        return (double) failed / outcomeCount;
+    }
+}
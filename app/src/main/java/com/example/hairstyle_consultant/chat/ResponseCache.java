@@ -0,0 +1,247 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.example.hairstyle_consultant.HairStyleApplication;
+import com.example.hairstyle_consultant.utils.DiskCache;
+import com.example.hairstyle_consultant.utils.Hashing;
+import com.example.hairstyle_consultant.utils.TextNormalizer;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answers to consultation questions, so a repeated question is answered without calling
+ * Gemini.
+ *
+ * Entries are keyed by the normalized question (case, diacritics, punctuation and spacing
+ * ignored) plus a hash of the prompt context it was answered with: the instructions, the hair
+ * fields of the profile, the products retrieved for it and the conversation before it. A
+ * changed hair profile or a change to any of those products therefore misses, and so does a
+ * follow-up such as "còn loại nào khác?" asked after a different exchange. In practice the
+ * hits are opening questions, asked by users with the same hair profile, and repeats of a
+ * whole conversation. Recent answers are kept in memory; all answers are kept on disk for
+ * TTL_MS, within DISK_CACHE_BYTES.
+ *
+ * The user's name is not part of the key, so that users share entries. The prompt asks the
+ * model to address the user by name, so the name is replaced by a placeholder in the hashed
+ * conversation and in the stored answer, and the asking user's name is put back on a hit.
+ *
+ * Very short messages ("ok", "còn không?") are not cached at all.
+ */
+public class ResponseCache {
+    private static final String TAG = "ResponseCache";
+    private static final String DISK_CACHE_DIR = "responses";
+    private static final long DISK_CACHE_BYTES = 5L * 1024 * 1024;
+    private static final long TTL_MS = TimeUnit.DAYS.toMillis(7);
+    private static final int MEMORY_ENTRIES = 64;
+    private static final int MIN_QUESTION_TOKENS = 3;
+    // Stand-ins for the user's name; neither occurs in typed or generated text
+    private static final String FULL_NAME_MARK = "\u0003";
+    private static final String GIVEN_NAME_MARK = "\u0004";
+    // Said instead of the name to a user without one
+    private static final String NO_NAME = "bạn";
+    private static ResponseCache instance;
+
+    private static class Entry {
+        final String text;
+        final long createdAt;
+
+        Entry(String text, long createdAt) {
+            this.text = text;
+            this.createdAt = createdAt;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() - createdAt > TTL_MS;
+        }
+    }
+
+    private final LruCache<String, Entry> memoryCache = new LruCache<>(MEMORY_ENTRIES);
+    private final DiskCache diskCache;
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+
+    private ResponseCache(Context context) {
+        diskCache = new DiskCache(new File(context.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_BYTES);
+    }
+
+    public static synchronized ResponseCache getInstance(Context context) {
+        if (instance == null) {
+            instance = new ResponseCache(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * @param userName The asking user's full name, null if unknown
+     * @param hairProfile The hair fields of the profile section, without the name
+     * @param history The conversation context sent with the prompt, less the welcome message;
+     * its newest entry is the question itself
+     * @return The cache key, or null if this question should not be cached
+     */
+    public static String keyFor(String question, String userName, String hairProfile, String productSection,
+                                List<String> history) {
+        List<String> tokens = TextNormalizer.tokenize(question);
+        if (tokens.size() < MIN_QUESTION_TOKENS) {
+            return null;
+        }
+        StringBuilder context = new StringBuilder(PromptAssembler.STATIC_PREFIX)
+                .append('\u0001').append(hairProfile)
+                .append('\u0001').append(productSection);
+        // The question is left out so that it still matches in its normalized form only
+        for (int i = 0; i < history.size() - 1; i++) {
+            context.append('\u0002').append(removeName(history.get(i), userName));
+        }
+        return String.join(" ", tokens) + '\n' + Hashing.sha1Hex(context.toString());
+    }
+
+    /**
+     * @param userName The asking user's full name, null if unknown
+     * @return The answer from memory, or null; never touches the disk
+     */
+    public String getFromMemory(String key, String userName) {
+        Entry entry = memoryCache.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired()) {
+            memoryCache.remove(key);
+            return null;
+        }
+        memoryHits.incrementAndGet();
+        return restoreName(entry.text, userName);
+    }
+
+    /**
+     * Look the answer up in memory, then on disk (on the io pool).
+     * @param userName The asking user's full name, null if unknown
+     * @return The cached answer, addressed to this user, or null on a miss
+     */
+    public ListenableFuture<String> get(String key, String userName) {
+        String cached = getFromMemory(key, userName);
+        if (cached != null) {
+            return Futures.immediateFuture(cached);
+        }
+        return Futures.submit(() -> {
+            Entry entry = readFromDisk(key);
+            if (entry == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            diskHits.incrementAndGet();
+            memoryCache.put(key, entry);
+            return restoreName(entry.text, userName);
+        }, HairStyleApplication.getExecutors().io());
+    }
+
+    /**
+     * @param userName The full name of the user the answer was given to, null if unknown
+     */
+    public void put(String key, String text, String userName) {
+        Entry entry = new Entry(removeName(text, userName), System.currentTimeMillis());
+        memoryCache.put(key, entry);
+        HairStyleApplication.getExecutors().io().execute(() -> {
+            byte[] data = (entry.createdAt + "\n" + entry.text).getBytes(StandardCharsets.UTF_8);
+            try {
+                diskCache.put(key, new ByteArrayInputStream(data));
+            } catch (IOException e) {
+                Log.w(TAG, "Could not store response: " + e.getMessage());
+            }
+        });
+    }
+
+    public long getHits() {
+        return memoryHits.get() + diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public String getStats() {
+        long hits = getHits();
+        long total = hits + misses.get();
+        return "hits " + hits + " (memory " + memoryHits.get() + ", disk " + diskHits.get() + "), misses "
+                + misses.get() + " (" + expired.get() + " expired), hit rate "
+                + (total == 0 ? 0 : hits * 100 / total) + "%";
+    }
+
+    private Entry readFromDisk(String key) {
+        File file = diskCache.get(key);
+        if (file == null) {
+            return null;
+        }
+        try (InputStream input = new FileInputStream(file)) {
+            byte[] data = new byte[(int) file.length()];
+            int offset = 0;
+            int read;
+            while (offset < data.length && (read = input.read(data, offset, data.length - offset)) != -1) {
+                offset += read;
+            }
+            String content = new String(data, 0, offset, StandardCharsets.UTF_8);
+            int newline = content.indexOf('\n');
+            Entry entry = new Entry(content.substring(newline + 1), Long.parseLong(content.substring(0, newline)));
+            if (entry.isExpired()) {
+                expired.incrementAndGet();
+                diskCache.remove(key);
+                return null;
+            }
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Dropping unreadable response " + file.getName() + ": " + e.getMessage());
+            diskCache.remove(key);
+            return null;
+        }
+    }
+
+    /**
+     * Replace the user's full name, and their given name on its own, with placeholders.
+     */
+    static String removeName(String text, String fullName) {
+        String name = fullName == null ? "" : fullName.trim();
+        if (name.isEmpty()) {
+            return text;
+        }
+        text = replaceWord(text, name, FULL_NAME_MARK);
+        String given = givenName(name);
+        return given.equals(name) ? text : replaceWord(text, given, GIVEN_NAME_MARK);
+    }
+
+    /**
+     * Put the user's name back in place of the placeholders {@link #removeName} left.
+     */
+    static String restoreName(String text, String fullName) {
+        String name = fullName == null ? "" : fullName.trim();
+        if (name.isEmpty()) {
+            return text.replace(FULL_NAME_MARK, NO_NAME).replace(GIVEN_NAME_MARK, NO_NAME);
+        }
+        return text.replace(FULL_NAME_MARK, name).replace(GIVEN_NAME_MARK, givenName(name));
+    }
+
+    // Vietnamese names put the given name last, and that is the one the model uses
+    private static String givenName(String fullName) {
+        return fullName.substring(fullName.lastIndexOf(' ') + 1);
+    }
+
+    private static String replaceWord(String text, String word, String replacement) {
+        return Pattern.compile("(?<![\\p{L}\\p{N}])" + Pattern.quote(word) + "(?![\\p{L}\\p{N}])")
+                .matcher(text)
+                .replaceAll(Matcher.quoteReplacement(replacement));
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collects a streamed model response and reports the text generated so far to the main
+ * thread, at most once per display frame however fast chunks arrive.
+ *
+ * Usage (on the main thread):
+ * ResponseStream stream = new ResponseStream(listener);
+ * stream.start(llmClient.generateStream(parts));
+ * ...
+ * stream.cancel();   // e.g. in onDestroy
+ */
+public class ResponseStream {
+    public interface Listener {
+        /**
+         * @param text Everything received so far; called at most once per frame
+         */
+        void onPartialText(String text);
+
+        /**
+         * @param text The complete response
+         */
+        void onComplete(String text);
+
+        /**
+         * @param text Whatever was received before the error, may be empty
+         */
+        void onError(Throwable error, String text);
+    }
+
+    private final Listener listener;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Choreographer choreographer;
+    // Guarded by itself; appended on the client's thread, read on the main thread
+    private final StringBuilder text = new StringBuilder();
+    private final Choreographer.FrameCallback frameCallback = frameTimeNanos -> deliverPartial();
+    // Set from the first chunk after a frame until that frame has delivered it
+    private final AtomicBoolean updatePending = new AtomicBoolean();
+    private volatile boolean finished;
+    private volatile Subscription subscription;
+
+    /**
+     * Must be created on the main thread.
+     */
+    public ResponseStream(Listener listener) {
+        this.listener = listener;
+        this.choreographer = Choreographer.getInstance();
+    }
+
+    public void start(Publisher<String> publisher) {
+        publisher.subscribe(new Subscriber<String>() {
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                if (finished) {
+                    s.cancel();
+                } else {
+                    s.request(Long.MAX_VALUE);
+                }
+            }
+
+            @Override
+            public void onNext(String chunkText) {
+                if (finished || chunkText == null || chunkText.isEmpty()) {
+                    return;
+                }
+                synchronized (text) {
+                    text.append(chunkText);
+                }
+                if (updatePending.compareAndSet(false, true)) {
+                    mainHandler.post(ResponseStream.this::scheduleFrame);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                mainHandler.post(() -> {
+                    if (finish()) {
+                        listener.onError(t, snapshot());
+                    }
+                });
+            }
+
+            @Override
+            public void onComplete() {
+                mainHandler.post(() -> {
+                    if (finish()) {
+                        listener.onComplete(snapshot());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Stop the stream; the listener is not called again. Must be called on the main thread.
+     */
+    public void cancel() {
+        if (finish()) {
+            Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return true if this call finished the stream, false if it was already finished
+     */
+    private boolean finish() {
+        if (finished) {
+            return false;
+        }
+        finished = true;
+        choreographer.removeFrameCallback(frameCallback);
+        return true;
+    }
+
+    private void scheduleFrame() {
+        if (!finished) {
+            choreographer.postFrameCallback(frameCallback);
+        }
+    }
+
+    private void deliverPartial() {
+        updatePending.set(false);
+        if (!finished) {
+            listener.onPartialText(snapshot());
+        }
+    }
+
+    private String snapshot() {
+        synchronized (text) {
+            return text.toString();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.hairstyle_consultant.chat;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Where each chat turn's tokens and time go, over the last WINDOW turns.
+ *
+ * Token counts are estimates from {@link ConversationMemory#estimateTokens}, the same heuristic
+ * the memory budget uses; the SDK does not report usage. They are meant for comparing sections
+ * and spotting growth, not for billing.
+ *
+ * Usage (on the main thread):
+ * TurnTelemetry.Turn turn = TurnTelemetry.getInstance().startTurn(question, prompt, history);
+ * turn.onModelCalled(); turn.onFirstToken(); turn.finish(TurnTelemetry.Source.MODEL, answer);
+ */
+public class TurnTelemetry {
+    private static final String TAG = "TurnTelemetry";
+    private static final int WINDOW = 200;
+    private static TurnTelemetry instance;
+
+    public enum Metric {
+        SYSTEM_TOKENS("system tokens"),
+        PROFILE_TOKENS("profile tokens"),
+        CATALOG_TOKENS("catalog tokens"),
+        HISTORY_TOKENS("history tokens"),
+        USER_TOKENS("user tokens"),
+        PROMPT_TOKENS("prompt tokens"),
+        RESPONSE_TOKENS("response tokens"),
+        TURN_MS("turn ms"),
+        MODEL_MS("model ms"),
+        FIRST_TOKEN_MS("first token ms");
+
+        final String label;
+
+        Metric(String label) {
+            this.label = label;
+        }
+    }
+
+    /**
+     * How a turn was answered.
+     */
+    public enum Source {
+        MODEL,
+        CACHE,
+        LOCAL,
+        FALLBACK,
+        FAILED
+    }
+
+    /**
+     * One turn being measured. Not thread-safe; call it from the thread that drives the turn.
+     */
+    public class Turn {
+        private final Map<Metric, Long> values = new EnumMap<>(Metric.class);
+        private final long startedAt = SystemClock.elapsedRealtime();
+        private long modelCalledAt = -1;
+        private boolean finished;
+
+        Turn(String question) {
+            values.put(Metric.USER_TOKENS, (long) ConversationMemory.estimateTokens(question));
+        }
+
+        Turn(String question, PromptAssembler.Prompt prompt, List<String> history) {
+            int user = ConversationMemory.estimateTokens(question);
+            int historyTokens = 0;
+            for (String entry : history) {
+                historyTokens += ConversationMemory.estimateTokens(entry);
+            }
+            // The question is already the newest history entry; count it once, as user tokens
+            historyTokens = Math.max(0, historyTokens - user);
+            int system = ConversationMemory.estimateTokens(PromptAssembler.STATIC_PREFIX);
+            int profile = ConversationMemory.estimateTokens(prompt.profileSection);
+            int catalog = ConversationMemory.estimateTokens(prompt.productSection);
+            values.put(Metric.SYSTEM_TOKENS, (long) system);
+            values.put(Metric.PROFILE_TOKENS, (long) profile);
+            values.put(Metric.CATALOG_TOKENS, (long) catalog);
+            values.put(Metric.HISTORY_TOKENS, (long) historyTokens);
+            values.put(Metric.USER_TOKENS, (long) user);
+            values.put(Metric.PROMPT_TOKENS, (long) system + profile + catalog + historyTokens + user);
+        }
+
+        public void onModelCalled() {
+            modelCalledAt = SystemClock.elapsedRealtime();
+        }
+
+        public void onFirstToken() {
+            if (!values.containsKey(Metric.FIRST_TOKEN_MS)) {
+                values.put(Metric.FIRST_TOKEN_MS, SystemClock.elapsedRealtime() - startedAt);
+            }
+        }
+
+        /**
+         * Record the turn; later calls are ignored.
+         * @param response The text shown, may be null
+         */
+        public void finish(Source source, String response) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            long now = SystemClock.elapsedRealtime();
+            values.put(Metric.TURN_MS, now - startedAt);
+            if (modelCalledAt >= 0) {
+                values.put(Metric.MODEL_MS, now - modelCalledAt);
+            }
+            if (response != null) {
+                values.put(Metric.RESPONSE_TOKENS, (long) ConversationMemory.estimateTokens(response));
+            }
+            record(source, values);
+        }
+    }
+
+    private final Map<Metric, LatencyWindow> windows = new EnumMap<>(Metric.class);
+    private final Map<Source, Long> sources = new EnumMap<>(Source.class);
+
+    private TurnTelemetry() {
+        for (Metric metric : Metric.values()) {
+            windows.put(metric, new LatencyWindow(WINDOW));
+        }
+        for (Source source : Source.values()) {
+            sources.put(source, 0L);
+        }
+    }
+
+    public static synchronized TurnTelemetry getInstance() {
+        if (instance == null) {
+            instance = new TurnTelemetry();
+        }
+        return instance;
+    }
+
+    /**
+     * @param history The conversation context sent with the prompt
+     */
+    public Turn startTurn(String question, PromptAssembler.Prompt prompt, List<String> history) {
+        return new Turn(question, prompt, history);
+    }
+
+    /**
+     * A turn answered without building a prompt, e.g. by {@link LocalAnswerer}
+     */
+    public Turn startLocalTurn(String question) {
+        return new Turn(question);
+    }
+
+    private synchronized void record(Source source, Map<Metric, Long> values) {
+        sources.put(source, sources.get(source) + 1);
+        // Failed turns count, but their latency would skew the answered turns' percentiles
+        if (source == Source.FAILED) {
+            return;
+        }
+        for (Map.Entry<Metric, Long> value : values.entrySet()) {
+            windows.get(value.getKey()).record(value.getValue());
+        }
+        Log.d(TAG, source + " turn: " + values);
+    }
+
+    /**
+     * @return A text table of every metric's rolling percentiles and each section's share of
+     * the prompt
+     */
+    public synchronized String dump() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT,
+                "Turns: %d model, %d cache, %d local, %d fallback, %d failed (last %d kept)\n\n",
+                sources.get(Source.MODEL), sources.get(Source.CACHE), sources.get(Source.LOCAL),
+                sources.get(Source.FALLBACK), sources.get(Source.FAILED), WINDOW));
+        out.append(String.format(Locale.ROOT, "%-16s %6s %6s %6s %6s %6s\n", "", "p50", "p95", "p99", "max", "mean"));
+        for (Metric metric : Metric.values()) {
+            LatencyWindow window = windows.get(metric);
+            if (window.size() == 0) {
+                out.append(String.format(Locale.ROOT, "%-16s %6s\n", metric.label, "-"));
+                continue;
+            }
+            out.append(String.format(Locale.ROOT, "%-16s %6d %6d %6d %6d %6d\n", metric.label,
+                    window.percentile(50), window.percentile(95), window.percentile(99),
+                    window.percentile(100), window.mean()));
+        }
+
+        long prompt = windows.get(Metric.PROMPT_TOKENS).mean();
+        if (prompt > 0) {
+            out.append("\nShare of prompt tokens (mean): ");
+            Metric[] sections = {Metric.SYSTEM_TOKENS, Metric.PROFILE_TOKENS, Metric.CATALOG_TOKENS,
+                    Metric.HISTORY_TOKENS, Metric.USER_TOKENS};
+            for (int i = 0; i < sections.length; i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                String label = sections[i].label;
+                out.append(label, 0, label.indexOf(' '))
+                        .append(' ')
+                        .append(windows.get(sections[i]).mean() * 100 / prompt)
+                        .append('%');
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -3,7 +3,26 @@ package com.example.hairstyle_consultant.models;
 import com.google.firebase.firestore.Exclude;
 import com.google.firebase.firestore.PropertyName;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
 public class Product {
+    // Firestore field names
+    public static final String FIELD_NAME = "name";
+    public static final String FIELD_DESCRIPTION = "description";
+    public static final String FIELD_PRICE = "price";
+    public static final String FIELD_STOCK_AMOUNT = "stockAmount";
+    public static final String FIELD_CATEGORY = "category";
+    public static final String FIELD_BRAND = "brand";
+    public static final String FIELD_IMAGE_URL = "imageUrl";
+    public static final String FIELD_IS_AVAILABLE = "isAvailable";
+    // Where documents written before isAvailable was mapped correctly keep availability
+    public static final String LEGACY_FIELD_AVAILABLE = "available";
+
     @Exclude
     private String id;
     
@@ -28,9 +47,17 @@ public class Product {
     @PropertyName("imageUrl")
     private String imageUrl;
     
-    @PropertyName("isAvailable")
+    // Mapped through isAvailable()/setAvailable(); the mapper ignores annotations on private fields
     private boolean isAvailable;
 
+    // Field values as last loaded from (or saved to) Firestore; null if never loaded
+    @Exclude
+    private Map<String, Object> loadedState;
+
+    // Fields changed through a setter since the last markLoaded()
+    @Exclude
+    private final Set<String> dirtyFields = new HashSet<>();
+
     // Default constructor required for Firestore
     public Product() {
     }
@@ -65,6 +92,7 @@ public class Product {
 
     public void setName(String name) {
         this.name = name;
+        dirtyFields.add(FIELD_NAME);
     }
 
     public String getDescription() {
@@ -73,6 +101,7 @@ public class Product {
 
     public void setDescription(String description) {
         this.description = description;
+        dirtyFields.add(FIELD_DESCRIPTION);
     }
 
     public double getPrice() {
@@ -81,6 +110,7 @@ public class Product {
 
     public void setPrice(double price) {
         this.price = price;
+        dirtyFields.add(FIELD_PRICE);
     }
 
     public int getStockAmount() {
@@ -89,6 +119,7 @@ public class Product {
 
     public void setStockAmount(int stockAmount) {
         this.stockAmount = stockAmount;
+        dirtyFields.add(FIELD_STOCK_AMOUNT);
     }
 
     public String getCategory() {
@@ -97,6 +128,7 @@ public class Product {
 
     public void setCategory(String category) {
         this.category = category;
+        dirtyFields.add(FIELD_CATEGORY);
     }
 
     public String getBrand() {
@@ -105,6 +137,7 @@ public class Product {
 
     public void setBrand(String brand) {
         this.brand = brand;
+        dirtyFields.add(FIELD_BRAND);
     }
 
     public String getImageUrl() {
@@ -113,13 +146,79 @@ public class Product {
 
     public void setImageUrl(String imageUrl) {
         this.imageUrl = imageUrl;
+        dirtyFields.add(FIELD_IMAGE_URL);
     }
 
+    @PropertyName(FIELD_IS_AVAILABLE)
     public boolean isAvailable() {
         return isAvailable;
     }
 
+    @PropertyName(FIELD_IS_AVAILABLE)
     public void setAvailable(boolean available) {
         isAvailable = available;
+        dirtyFields.add(FIELD_IS_AVAILABLE);
+    }
+
+    /**
+     * Record the current values as the state stored in Firestore and clear the dirty set.
+     * Call this right after loading the product from, or saving it to, Firestore.
+     */
+    public void markLoaded() {
+        loadedState = currentState();
+        dirtyFields.clear();
+    }
+
+    @Exclude
+    public boolean isLoaded() {
+        return loadedState != null;
+    }
+
+    /**
+     * @return true if any field differs from the loaded state
+     */
+    public boolean hasChanges() {
+        return !getChangedFields().isEmpty();
+    }
+
+    /**
+     * @return Firestore field name to new value, for every dirty field whose value actually
+     * differs from the loaded state. Empty if nothing changed or the product was never loaded.
+     */
+    @Exclude
+    public Map<String, Object> getChangedFields() {
+        if (loadedState == null || dirtyFields.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> current = currentState();
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (String field : dirtyFields) {
+            Object value = current.get(field);
+            if (!Objects.equals(value, loadedState.get(field))) {
+                changes.put(field, value);
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * @return Value of a field as it was loaded, or null if the product was never loaded
+     */
+    @Exclude
+    public Object getLoadedValue(String field) {
+        return loadedState == null ? null : loadedState.get(field);
+    }
+
+    private Map<String, Object> currentState() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        state.put(FIELD_NAME, name);
+        state.put(FIELD_DESCRIPTION, description);
+        state.put(FIELD_PRICE, price);
+        state.put(FIELD_STOCK_AMOUNT, stockAmount);
+        state.put(FIELD_CATEGORY, category);
+        state.put(FIELD_BRAND, brand);
+        state.put(FIELD_IMAGE_URL, imageUrl);
+        state.put(FIELD_IS_AVAILABLE, isAvailable);
+        return state;
     }
 } 
\ No newline at end of file
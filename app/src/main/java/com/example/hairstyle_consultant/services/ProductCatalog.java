@@ -0,0 +1,207 @@
+package com.example.hairstyle_consultant.services;
+
+import android.util.Log;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.DocumentChange;
+import com.google.firebase.firestore.ListenerRegistration;
+import com.google.firebase.firestore.MetadataChanges;
+import com.google.firebase.firestore.QueryDocumentSnapshot;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Process-wide, in-memory copy of the products collection.
+ *
+ * A single Firestore snapshot listener keeps the cache current. The first snapshot fills
+ * the cache, after that only the DocumentChange deltas are applied. Every applied snapshot
+ * bumps the version number, so screens can tell whether their copy is stale.
+ *
+ * Obtain it through {@link ProductService#getCatalog()}.
+ */
+public class ProductCatalog {
+    private static final String TAG = "ProductCatalog";
+    private static ProductCatalog instance;
+
+    private final Map<String, Product> products = new LinkedHashMap<>();
+    private final ProductSearchIndex searchIndex = new ProductSearchIndex();
+    private final List<OnCatalogChangedListener> listeners = new CopyOnWriteArrayList<>();
+    private ListenerRegistration registration;
+    private TaskCompletionSource<Void> loadedSource = new TaskCompletionSource<>();
+    private List<Product> productList = Collections.emptyList();
+    private boolean productListStale;
+    private boolean loaded;
+    private long version;
+
+    public interface OnCatalogChangedListener {
+        void onCatalogChanged(long version);
+    }
+
+    private ProductCatalog() {
+    }
+
+    static synchronized ProductCatalog getInstance() {
+        if (instance == null) {
+            instance = new ProductCatalog();
+        }
+        return instance;
+    }
+
+    /**
+     * Attach the snapshot listener if it is not attached yet. Safe to call from every screen.
+     */
+    synchronized void start(CollectionReference productsCollection) {
+        if (registration != null) {
+            return;
+        }
+        Log.d(TAG, "Starting catalog sync");
+        // Metadata changes are included so we hear about the server confirming an empty or
+        // unchanged cache; they carry no document changes and are otherwise ignored.
+        registration = productsCollection.addSnapshotListener(MetadataChanges.INCLUDE, (snapshot, e) -> {
+            if (e != null) {
+                onSyncError(e);
+                return;
+            }
+            if (snapshot != null) {
+                applySnapshot(snapshot);
+            }
+        });
+    }
+
+    /**
+     * Detach the snapshot listener. The cached products stay readable but stop updating.
+     */
+    public synchronized void stop() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    private void applySnapshot(QuerySnapshot snapshot) {
+        List<DocumentChange> changes = snapshot.getDocumentChanges();
+        // An empty result served from the local cache only means nothing is cached yet
+        boolean confirmed = !snapshot.getMetadata().isFromCache() || !snapshot.isEmpty();
+        long newVersion;
+        synchronized (this) {
+            if (changes.isEmpty() && (loaded || !confirmed)) {
+                return;
+            }
+            for (DocumentChange change : changes) {
+                QueryDocumentSnapshot document = change.getDocument();
+                switch (change.getType()) {
+                    case ADDED:
+                    case MODIFIED:
+                        try {
+                            Product product = ProductService.toProduct(document);
+                            products.put(document.getId(), product);
+                            searchIndex.put(product);
+                        } catch (RuntimeException ex) {
+                            Log.e(TAG, "Skipping malformed product " + document.getId(), ex);
+                        }
+                        break;
+                    case REMOVED:
+                        products.remove(document.getId());
+                        searchIndex.remove(document.getId());
+                        break;
+                }
+            }
+            productListStale = true;
+            newVersion = ++version;
+            if (!loaded && confirmed) {
+                loaded = true;
+                loadedSource.trySetResult(null);
+            }
+        }
+        Log.d(TAG, "Applied " + changes.size() + " changes, version " + newVersion);
+        for (OnCatalogChangedListener listener : listeners) {
+            listener.onCatalogChanged(newVersion);
+        }
+    }
+
+    private void onSyncError(Exception e) {
+        Log.e(TAG, "Catalog sync failed", e);
+        synchronized (this) {
+            // Firestore drops the listener after an error; let the next start() re-attach it.
+            registration = null;
+            if (!loaded) {
+                loadedSource.trySetException(e);
+                loadedSource = new TaskCompletionSource<>();
+            }
+        }
+    }
+
+    /**
+     * @return Task that completes once the first server-confirmed (or non-empty cached)
+     * snapshot has been applied
+     */
+    public synchronized Task<Void> whenLoaded() {
+        return loadedSource.getTask();
+    }
+
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * @return Version of the cached data, incremented each time a snapshot is applied
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized int size() {
+        return products.size();
+    }
+
+    public synchronized Product getProduct(String productId) {
+        return products.get(productId);
+    }
+
+    /**
+     * @return Immutable list of all cached products. The same instance is returned until the
+     * catalog changes, so repeated reads do not copy.
+     */
+    public synchronized List<Product> getProducts() {
+        if (productListStale) {
+            productList = Collections.unmodifiableList(new ArrayList<>(products.values()));
+            productListStale = false;
+        }
+        return productList;
+    }
+
+    /**
+     * Search the cached products without a network round trip.
+     * @param query Free text; case and Vietnamese diacritics are ignored
+     * @param limit Maximum number of results
+     * @return Matching products, best match first
+     */
+    public List<Product> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    /**
+     * Rank cached products against weighted, folded terms with BM25.
+     * @see ProductSearchIndex#rank(Map, int)
+     */
+    public List<Product> rank(Map<String, Float> queryTerms, int limit) {
+        return searchIndex.rank(queryTerms, limit);
+    }
+
+    public void addListener(OnCatalogChangedListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(OnCatalogChangedListener listener) {
+        listeners.remove(listener);
+    }
+}
@@ -0,0 +1,307 @@
+package com.example.hairstyle_consultant.services;
+
+import androidx.annotation.Nullable;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.utils.TextNormalizer;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.Query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Typed, composable product filter.
+ *
+ * {@link #toFirestoreQuery} pushes every predicate Firestore can serve (equality on category,
+ * brand and availability, a price range, the sort order and the limit) into a single query.
+ * Whatever it cannot push down is applied by {@link #apply} in memory, which is also used to
+ * answer the whole query from the catalog cache when it is loaded.
+ *
+ * The composite indexes these queries need are declared in firestore.indexes.json. There is one
+ * index per equality field and sort order; Firestore merges them for queries that combine
+ * several equality filters.
+ *
+ * Usage:
+ * ProductQuery query = ProductQuery.builder()
+ *     .category("Shampoo")
+ *     .available(true)
+ *     .priceBetween(10.0, 30.0)
+ *     .sortBy(ProductQuery.SortField.PRICE, false)
+ *     .limit(20)
+ *     .build();
+ * productService.queryProducts(query);
+ */
+public final class ProductQuery {
+    public enum SortField {
+        NAME(Product.FIELD_NAME),
+        PRICE(Product.FIELD_PRICE);
+
+        private final String fieldName;
+
+        SortField(String fieldName) {
+            this.fieldName = fieldName;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        /**
+         * @return Ascending order on this field, as Firestore sorts it (strings by code point)
+         */
+        public Comparator<Product> comparator() {
+            if (this == PRICE) {
+                return (a, b) -> Double.compare(a.getPrice(), b.getPrice());
+            }
+            return (a, b) -> {
+                String nameA = a.getName() == null ? "" : a.getName();
+                String nameB = b.getName() == null ? "" : b.getName();
+                return nameA.compareTo(nameB);
+            };
+        }
+    }
+
+    private final String category;
+    private final String brand;
+    private final Boolean available;
+    private final Double minPrice;
+    private final Double maxPrice;
+    private final Integer minStock;
+    private final List<String> textTerms;
+    private final SortField sortField;
+    private final boolean descending;
+    private final int limit;
+
+    private ProductQuery(Builder builder) {
+        this.category = builder.category;
+        this.brand = builder.brand;
+        this.available = builder.available;
+        this.minPrice = builder.minPrice;
+        this.maxPrice = builder.maxPrice;
+        this.minStock = builder.minStock;
+        this.textTerms = TextNormalizer.tokenize(builder.text);
+        this.sortField = builder.sortField;
+        this.descending = builder.descending;
+        this.limit = builder.limit;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private boolean hasPriceRange() {
+        return minPrice != null || maxPrice != null;
+    }
+
+    /**
+     * Firestore needs the first orderBy on the range field, so a price range combined with
+     * another sort order has to be sorted (and therefore limited) in memory.
+     */
+    private boolean sortPushedDown() {
+        return sortField == null || !hasPriceRange() || sortField == SortField.PRICE;
+    }
+
+    /**
+     * @return true if {@link #apply} has to filter, sort or limit the Firestore results
+     */
+    public boolean needsInMemoryPass() {
+        return minStock != null || !textTerms.isEmpty() || !sortPushedDown();
+    }
+
+    /**
+     * Compile the predicates Firestore can evaluate into a single query.
+     */
+    public Query toFirestoreQuery(CollectionReference productsCollection) {
+        Query query = productsCollection;
+        if (category != null) {
+            query = query.whereEqualTo(Product.FIELD_CATEGORY, category);
+        }
+        if (brand != null) {
+            query = query.whereEqualTo(Product.FIELD_BRAND, brand);
+        }
+        if (available != null) {
+            query = query.whereEqualTo(Product.FIELD_IS_AVAILABLE, available);
+        }
+        if (minPrice != null) {
+            query = query.whereGreaterThanOrEqualTo(Product.FIELD_PRICE, minPrice);
+        }
+        if (maxPrice != null) {
+            query = query.whereLessThanOrEqualTo(Product.FIELD_PRICE, maxPrice);
+        }
+
+        Query.Direction direction = descending ? Query.Direction.DESCENDING : Query.Direction.ASCENDING;
+        if (sortPushedDown()) {
+            if (sortField != null) {
+                query = query.orderBy(sortField.fieldName, direction);
+            }
+        } else {
+            query = query.orderBy(Product.FIELD_PRICE);
+        }
+        if (limit > 0 && !needsInMemoryPass()) {
+            query = query.limit(limit);
+        }
+        return query;
+    }
+
+    /**
+     * @return true if the product satisfies every predicate of this query
+     */
+    public boolean matches(Product product) {
+        if (category != null && !category.equals(product.getCategory())) {
+            return false;
+        }
+        if (brand != null && !brand.equals(product.getBrand())) {
+            return false;
+        }
+        if (available != null && available != product.isAvailable()) {
+            return false;
+        }
+        if (minPrice != null && product.getPrice() < minPrice) {
+            return false;
+        }
+        if (maxPrice != null && product.getPrice() > maxPrice) {
+            return false;
+        }
+        if (minStock != null && product.getStockAmount() < minStock) {
+            return false;
+        }
+        return textTerms.isEmpty() || matchesText(product);
+    }
+
+    private boolean matchesText(Product product) {
+        List<String> tokens = new ArrayList<>();
+        tokens.addAll(TextNormalizer.tokenize(product.getName()));
+        tokens.addAll(TextNormalizer.tokenize(product.getBrand()));
+        tokens.addAll(TextNormalizer.tokenize(product.getDescription()));
+        for (String term : textTerms) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(term)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Evaluate the full query in memory: filter, sort and limit.
+     * @param products Candidate products, e.g. the catalog cache or a Firestore result
+     * @return A new list with the matching products
+     */
+    public List<Product> apply(Collection<Product> products) {
+        List<Product> result = new ArrayList<>();
+        for (Product product : products) {
+            if (matches(product)) {
+                result.add(product);
+            }
+        }
+        Comparator<Product> comparator = comparator();
+        if (comparator != null) {
+            Collections.sort(result, comparator);
+        }
+        if (limit > 0 && result.size() > limit) {
+            result = new ArrayList<>(result.subList(0, limit));
+        }
+        return result;
+    }
+
+    @Nullable
+    private Comparator<Product> comparator() {
+        if (sortField == null) {
+            return null;
+        }
+        Comparator<Product> comparator = sortField.comparator();
+        return descending ? Collections.reverseOrder(comparator) : comparator;
+    }
+
+    public static class Builder {
+        private String category;
+        private String brand;
+        private Boolean available;
+        private Double minPrice;
+        private Double maxPrice;
+        private Integer minStock;
+        private String text;
+        private SortField sortField;
+        private boolean descending;
+        private int limit;
+
+        private Builder() {
+        }
+
+        public Builder category(String category) {
+            this.category = category;
+            return this;
+        }
+
+        public Builder brand(String brand) {
+            this.brand = brand;
+            return this;
+        }
+
+        public Builder available(boolean available) {
+            this.available = available;
+            return this;
+        }
+
+        public Builder minPrice(double minPrice) {
+            this.minPrice = minPrice;
+            return this;
+        }
+
+        public Builder maxPrice(double maxPrice) {
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        public Builder priceBetween(double minPrice, double maxPrice) {
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        /**
+         * Evaluated in memory: Firestore allows range filters on one field per query here.
+         */
+        public Builder minStock(int minStock) {
+            this.minStock = minStock;
+            return this;
+        }
+
+        /**
+         * Words that must all appear (as a word prefix) in the name, brand or description.
+         * Evaluated in memory, ignoring case and diacritics.
+         */
+        public Builder text(String text) {
+            this.text = text;
+            return this;
+        }
+
+        public Builder sortBy(SortField sortField, boolean descending) {
+            this.sortField = sortField;
+            this.descending = descending;
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public ProductQuery build() {
+            if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+                throw new IllegalArgumentException("minPrice must not exceed maxPrice");
+            }
+            return new ProductQuery(this);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.hairstyle_consultant.services;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.example.hairstyle_consultant.utils.TextNormalizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Local inverted index over product name, brand, category and description.
+ *
+ * Tokens are folded with {@link TextNormalizer}, so matching ignores case and diacritics.
+ * Every query term must match (the last one may be a prefix, for search-as-you-type) and
+ * results are ranked by field-weighted term frequency times inverse document frequency.
+ * {@link #rank} scores free-form, weighted bags of terms with BM25 for retrieval, where a
+ * product only needs to match some of the terms.
+ * The index is updated one product at a time by {@link ProductCatalog}.
+ */
+public class ProductSearchIndex {
+    private static final int NAME_WEIGHT = 4;
+    private static final int BRAND_WEIGHT = 3;
+    private static final int CATEGORY_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+    // Terms completed from a prefix count for less than a term typed out in full
+    private static final float PREFIX_MATCH_FACTOR = 0.5f;
+    // Standard BM25 term-frequency saturation and length normalization
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+
+    // term -> (productId -> field-weighted term frequency)
+    private final TreeMap<String, Map<String, Integer>> postings = new TreeMap<>();
+    // productId -> distinct terms indexed for it, used to unindex on update and removal
+    private final Map<String, String[]> productTerms = new HashMap<>();
+    private final Map<String, Product> products = new HashMap<>();
+    // productId -> sum of field-weighted term frequencies, the BM25 document length
+    private final Map<String, Integer> productLengths = new HashMap<>();
+    private long totalLength;
+
+    /**
+     * Index a product, replacing whatever was indexed under the same id before.
+     */
+    public synchronized void put(Product product) {
+        if (product == null || product.getId() == null) {
+            return;
+        }
+        String productId = product.getId();
+        remove(productId);
+
+        Map<String, Integer> weights = new HashMap<>();
+        int length = addField(weights, product.getName(), NAME_WEIGHT);
+        length += addField(weights, product.getBrand(), BRAND_WEIGHT);
+        length += addField(weights, product.getCategory(), CATEGORY_WEIGHT);
+        length += addField(weights, product.getDescription(), DESCRIPTION_WEIGHT);
+
+        for (Map.Entry<String, Integer> entry : weights.entrySet()) {
+            Map<String, Integer> termPostings = postings.get(entry.getKey());
+            if (termPostings == null) {
+                termPostings = new HashMap<>();
+                postings.put(entry.getKey(), termPostings);
+            }
+            termPostings.put(productId, entry.getValue());
+        }
+        productTerms.put(productId, weights.keySet().toArray(new String[0]));
+        products.put(productId, product);
+        productLengths.put(productId, length);
+        totalLength += length;
+    }
+
+    public synchronized void remove(String productId) {
+        String[] terms = productTerms.remove(productId);
+        products.remove(productId);
+        Integer length = productLengths.remove(productId);
+        if (length != null) {
+            totalLength -= length;
+        }
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            Map<String, Integer> termPostings = postings.get(term);
+            if (termPostings != null) {
+                termPostings.remove(productId);
+                if (termPostings.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        productTerms.clear();
+        products.clear();
+        productLengths.clear();
+        totalLength = 0;
+    }
+
+    public synchronized int size() {
+        return products.size();
+    }
+
+    /**
+     * @param query Free text, e.g. "dau goi tri gau"
+     * @param limit Maximum number of results
+     * @return Products matching every query term, best match first
+     */
+    public synchronized List<Product> search(String query, int limit) {
+        List<String> terms = TextNormalizer.tokenize(query);
+        if (terms.isEmpty() || limit <= 0 || products.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Start from the rarest term so every later term only walks a small candidate set
+        int lastIndex = terms.size() - 1;
+        List<Integer> order = new ArrayList<>(terms.size());
+        int[] frequencies = new int[terms.size()];
+        for (int i = 0; i < terms.size(); i++) {
+            order.add(i);
+            frequencies[i] = documentFrequency(terms.get(i), i == lastIndex);
+            if (frequencies[i] == 0) {
+                return Collections.emptyList();
+            }
+        }
+        Collections.sort(order, (a, b) -> Integer.compare(frequencies[a], frequencies[b]));
+
+        Map<String, Float> scores = null;
+        for (int i : order) {
+            Map<String, Float> termScores = scoreTerm(terms.get(i), i == lastIndex, scores);
+            if (termScores.isEmpty()) {
+                return Collections.emptyList();
+            }
+            scores = termScores;
+        }
+        return topProducts(scores, limit);
+    }
+
+    /**
+     * Rank products against a weighted bag of already-folded terms with BM25. Unlike
+     * {@link #search}, a product does not have to match every term.
+     * @param queryTerms Folded term to query weight, e.g. 1.0 for the user's words and less
+     *                   for context terms
+     * @param limit Maximum number of results
+     * @return Products with a positive score, best first
+     */
+    public synchronized List<Product> rank(Map<String, Float> queryTerms, int limit) {
+        if (queryTerms.isEmpty() || limit <= 0 || products.isEmpty()) {
+            return Collections.emptyList();
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / products.size());
+        Map<String, Float> scores = new HashMap<>();
+        for (Map.Entry<String, Float> query : queryTerms.entrySet()) {
+            Map<String, Integer> termPostings = postings.get(query.getKey());
+            if (termPostings == null) {
+                continue;
+            }
+            int documentFrequency = termPostings.size();
+            double idf = Math.log(1.0 + (products.size() - documentFrequency + 0.5) / (documentFrequency + 0.5));
+            for (Map.Entry<String, Integer> posting : termPostings.entrySet()) {
+                double tf = posting.getValue();
+                double length = productLengths.get(posting.getKey());
+                double norm = tf + BM25_K1 * (1 - BM25_B + BM25_B * length / averageLength);
+                float score = (float) (query.getValue() * idf * tf * (BM25_K1 + 1) / norm);
+                Float current = scores.get(posting.getKey());
+                scores.put(posting.getKey(), current == null ? score : current + score);
+            }
+        }
+        return topProducts(scores, limit);
+    }
+
+    /**
+     * Upper bound on the number of products a term can match, counting prefix completions.
+     */
+    private int documentFrequency(String term, boolean allowPrefix) {
+        Map<String, Integer> exact = postings.get(term);
+        int frequency = exact == null ? 0 : exact.size();
+        if (allowPrefix) {
+            for (Map<String, Integer> completion : completions(term).values()) {
+                frequency += completion.size();
+            }
+        }
+        return frequency;
+    }
+
+    private SortedMap<String, Map<String, Integer>> completions(String term) {
+        return postings.subMap(term, false, term + Character.MAX_VALUE, false);
+    }
+
+    /**
+     * Score a single query term, restricted to the candidates that matched the earlier terms.
+     */
+    private Map<String, Float> scoreTerm(String term, boolean allowPrefix, Map<String, Float> candidates) {
+        Map<String, Float> result = new HashMap<>();
+        accumulate(result, term, postings.get(term), 1f, candidates);
+        if (allowPrefix) {
+            for (Map.Entry<String, Map<String, Integer>> entry : completions(term).entrySet()) {
+                accumulate(result, entry.getKey(), entry.getValue(), PREFIX_MATCH_FACTOR, candidates);
+            }
+        }
+        return result;
+    }
+
+    private void accumulate(Map<String, Float> result, String term, Map<String, Integer> termPostings,
+                            float factor, Map<String, Float> candidates) {
+        if (termPostings == null) {
+            return;
+        }
+        float idf = (float) Math.log(1.0 + (double) products.size() / termPostings.size());
+        if (candidates != null && candidates.size() < termPostings.size()) {
+            // Walk the smaller side of the intersection
+            for (Map.Entry<String, Float> candidate : candidates.entrySet()) {
+                Integer weight = termPostings.get(candidate.getKey());
+                if (weight != null) {
+                    addScore(result, candidate.getKey(), candidate.getValue(), weight * idf * factor);
+                }
+            }
+        } else {
+            for (Map.Entry<String, Integer> posting : termPostings.entrySet()) {
+                Float previous = candidates == null ? Float.valueOf(0f) : candidates.get(posting.getKey());
+                if (previous != null) {
+                    addScore(result, posting.getKey(), previous, posting.getValue() * idf * factor);
+                }
+            }
+        }
+    }
+
+    private static void addScore(Map<String, Float> result, String productId, float previous, float score) {
+        Float current = result.get(productId);
+        result.put(productId, current == null ? previous + score : current + score);
+    }
+
+    private List<Product> topProducts(Map<String, Float> scores, int limit) {
+        PriorityQueue<Map.Entry<String, Float>> top = new PriorityQueue<>(limit + 1,
+                (a, b) -> Float.compare(a.getValue(), b.getValue()));
+        for (Map.Entry<String, Float> entry : scores.entrySet()) {
+            top.offer(entry);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Product> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(products.get(top.poll().getKey()));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * @return The weighted number of tokens added
+     */
+    private static int addField(Map<String, Integer> weights, String text, int fieldWeight) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        for (String token : tokens) {
+            Integer current = weights.get(token);
+            weights.put(token, current == null ? fieldWeight : current + fieldWeight);
+        }
+        return tokens.size() * fieldWeight;
+    }
+}
@@ -2,24 +2,42 @@ package com.example.hairstyle_consultant.services;
 
 import android.util.Log;
 
+import androidx.annotation.Nullable;
+
 import com.example.hairstyle_consultant.models.Product;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.firebase.firestore.CollectionReference;
 import com.google.firebase.firestore.DocumentReference;
 import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestoreException;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.firestore.Query;
 import com.google.firebase.firestore.QuerySnapshot;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.Transaction;
+import com.google.firebase.firestore.WriteBatch;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ProductService {
     private static final String TAG = "ProductService";
     private static final String COLLECTION_NAME = "products";
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    // Firestore rejects batches with more than 500 writes
+    public static final int MAX_BATCH_SIZE = 500;
     private final FirebaseFirestore db;
     private final CollectionReference productsCollection;
 
+    public interface OnBatchProgressListener {
+        void onChunkCommitted(int chunksDone, int chunkCount, int productsWritten);
+    }
+
     public ProductService() {
         db = FirebaseFirestore.getInstance();
         productsCollection = db.collection(COLLECTION_NAME);
@@ -40,6 +58,108 @@ public class ProductService {
                 });
     }
 
+    /**
+     * Add many products using batched writes.
+     * @param products Products to add; each one is given a new document ID, set on the product
+     * @return Task with the new document IDs, in the same order as products
+     * @see #upsertProducts(List, OnBatchProgressListener)
+     */
+    public Task<List<String>> addProducts(List<Product> products) {
+        return addProducts(products, null);
+    }
+
+    public Task<List<String>> addProducts(List<Product> products, @Nullable OnBatchProgressListener progressListener) {
+        for (Product product : products) {
+            product.setId(null);
+        }
+        return upsertProducts(products, progressListener);
+    }
+
+    public Task<List<String>> upsertProducts(List<Product> products) {
+        return upsertProducts(products, null);
+    }
+
+    /**
+     * Create or overwrite many products, split into atomic WriteBatch commits of at most
+     * {@link #MAX_BATCH_SIZE} writes. Products with an ID are merged into that document,
+     * products without one are created with a new ID, which is set on the product.
+     * Each chunk is all-or-nothing; if one chunk fails the returned task fails, but chunks
+     * that already committed stay written.
+     * @param products Products to write
+     * @param progressListener Notified on the main thread after each chunk commits, may be null
+     * @return Task with the document IDs, in the same order as products
+     */
+    public Task<List<String>> upsertProducts(List<Product> products, @Nullable OnBatchProgressListener progressListener) {
+        List<String> ids = new ArrayList<>(products.size());
+        List<Task<Void>> commits = new ArrayList<>();
+        int chunkCount = (products.size() + MAX_BATCH_SIZE - 1) / MAX_BATCH_SIZE;
+        AtomicInteger chunksDone = new AtomicInteger();
+        AtomicInteger productsWritten = new AtomicInteger();
+
+        for (int start = 0; start < products.size(); start += MAX_BATCH_SIZE) {
+            List<Product> chunk = products.subList(start, Math.min(start + MAX_BATCH_SIZE, products.size()));
+            WriteBatch batch = db.batch();
+            for (Product product : chunk) {
+                DocumentReference document = product.getId() == null
+                        ? productsCollection.document()
+                        : productsCollection.document(product.getId());
+                product.setId(document.getId());
+                ids.add(document.getId());
+                batch.set(document, product, SetOptions.merge());
+            }
+            int chunkSize = chunk.size();
+            commits.add(batch.commit()
+                    .addOnSuccessListener(aVoid -> {
+                        int done = chunksDone.incrementAndGet();
+                        int written = productsWritten.addAndGet(chunkSize);
+                        Log.d(TAG, "Committed product batch " + done + "/" + chunkCount);
+                        if (progressListener != null) {
+                            progressListener.onChunkCommitted(done, chunkCount, written);
+                        }
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error committing product batch", e);
+                    }));
+        }
+
+        return Tasks.whenAll(commits).continueWithTask(task -> {
+            if (!task.isSuccessful()) {
+                return Tasks.<List<String>>forException(task.getException());
+            }
+            return Tasks.forResult(ids);
+        });
+    }
+
+    /**
+     * Create products under their IDs, leaving any that already exist untouched. Each product
+     * is checked and written in its own transaction, so a document created meanwhile (or an
+     * existing one whose price or stock has since been edited) is never overwritten.
+     * @param products Products to create; each must have an ID
+     * @return Task with the number of products created
+     */
+    public Task<Integer> createProductsIfAbsent(List<Product> products) {
+        List<Task<Boolean>> creates = new ArrayList<>(products.size());
+        for (Product product : products) {
+            DocumentReference document = productsCollection.document(product.getId());
+            creates.add(db.runTransaction((Transaction.Function<Boolean>) transaction -> {
+                if (transaction.get(document).exists()) {
+                    return false;
+                }
+                transaction.set(document, product);
+                return true;
+            }));
+        }
+        return Tasks.whenAllSuccess(creates).continueWith(task -> {
+            int created = 0;
+            for (Object wasCreated : task.getResult()) {
+                if (Boolean.TRUE.equals(wasCreated)) {
+                    created++;
+                }
+            }
+            return created;
+        });
+    }
+
     /**
      * Example of how to add a new product
      * Usage:
@@ -73,11 +193,135 @@ public class ProductService {
         addProduct(newProduct);
     }
 
-    // Get all products
+    /**
+     * Get the shared in-memory catalog, starting its snapshot listener on first use.
+     * Prefer this over {@link #getAllProducts()} for anything that just needs to read products.
+     * @return The process-wide ProductCatalog
+     */
+    public ProductCatalog getCatalog() {
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        catalog.start(productsCollection);
+        return catalog;
+    }
+
+    // Get all products straight from Firestore, bypassing the catalog cache
     public Task<QuerySnapshot> getAllProducts() {
         return productsCollection.get();
     }
 
+    /**
+     * Get one page of products in a stable order.
+     * @param orderByField Field to sort by, e.g. "name"
+     * @param pageSize Maximum number of products in the page
+     * @param startAfter Last document of the previous page, or null for the first page
+     * @return Task<QuerySnapshot> with at most pageSize documents
+     */
+    public Task<QuerySnapshot> getProductsPage(String orderByField, int pageSize, @Nullable DocumentSnapshot startAfter) {
+        Query query = productsCollection.orderBy(orderByField).limit(pageSize);
+        if (startAfter != null) {
+            query = query.startAfter(startAfter);
+        }
+        return query.get();
+    }
+
+    /**
+     * Get the page of products that comes right before a known document, for scrolling back
+     * to a page that was dropped from memory.
+     * @param orderByField Field to sort by, must match the one the pages were loaded with
+     * @param pageSize Maximum number of products in the page
+     * @param endBefore First document of the page that follows
+     * @return Task<QuerySnapshot> with at most pageSize documents, in ascending order
+     */
+    public Task<QuerySnapshot> getProductsPageBefore(String orderByField, int pageSize, DocumentSnapshot endBefore) {
+        return productsCollection.orderBy(orderByField)
+                .endBefore(endBefore)
+                .limitToLast(pageSize)
+                .get();
+    }
+
+    /**
+     * Check whether the collection has any product, reading at most one document.
+     * @return Task with true if at least one product exists
+     */
+    public Task<Boolean> hasAnyProducts() {
+        return productsCollection.limit(1).get()
+                .continueWith(task -> !task.getResult().isEmpty());
+    }
+
+    /**
+     * Move availability out of the legacy "available" field into {@link Product#FIELD_IS_AVAILABLE},
+     * which queries filter on and the composite indexes cover. A document that already has
+     * both keeps its isAvailable value; only the partial updates ever wrote that field, so it
+     * is the more recent of the two.
+     *
+     * Only documents that still have the legacy field are read, a batch at a time; a collection
+     * that has been migrated costs one empty query.
+     * @return Task with the number of documents migrated
+     */
+    public Task<Integer> migrateAvailabilityField() {
+        return migrateAvailabilityBatch(0);
+    }
+
+    private Task<Integer> migrateAvailabilityBatch(int migratedSoFar) {
+        // Ordering on a field matches only the documents that have it
+        return productsCollection.orderBy(Product.LEGACY_FIELD_AVAILABLE).limit(MAX_BATCH_SIZE).get()
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.<Integer>forException(task.getException());
+                    }
+                    List<DocumentSnapshot> legacy = task.getResult().getDocuments();
+                    if (legacy.isEmpty()) {
+                        Log.d(TAG, "Migrated availability of " + migratedSoFar + " products");
+                        return Tasks.forResult(migratedSoFar);
+                    }
+                    WriteBatch batch = db.batch();
+                    for (DocumentSnapshot document : legacy) {
+                        Map<String, Object> fields = new HashMap<>();
+                        if (!document.contains(Product.FIELD_IS_AVAILABLE)) {
+                            Boolean available = document.getBoolean(Product.LEGACY_FIELD_AVAILABLE);
+                            fields.put(Product.FIELD_IS_AVAILABLE, available != null && available);
+                        }
+                        fields.put(Product.LEGACY_FIELD_AVAILABLE, FieldValue.delete());
+                        batch.update(document.getReference(), fields);
+                    }
+                    // Migrated documents drop out of the query, so the next batch starts at the top again
+                    return batch.commit().continueWithTask(commit -> {
+                        if (!commit.isSuccessful()) {
+                            return Tasks.<Integer>forException(commit.getException());
+                        }
+                        return migrateAvailabilityBatch(migratedSoFar + legacy.size());
+                    });
+                });
+    }
+
+    /**
+     * Run a multi-filter product query. Answered from the catalog cache when it is loaded,
+     * otherwise compiled into one Firestore query with any remaining predicates applied to the
+     * returned documents.
+     * @param query The filters, sort order and limit
+     * @return Task with the matching products
+     */
+    public Task<List<Product>> queryProducts(ProductQuery query) {
+        ProductCatalog catalog = ProductCatalog.getInstance();
+        if (catalog.isLoaded()) {
+            return Tasks.forResult(query.apply(catalog.getProducts()));
+        }
+        return query.toFirestoreQuery(productsCollection).get()
+                .continueWith(task -> {
+                    List<Product> products = new ArrayList<>();
+                    for (DocumentSnapshot document : task.getResult().getDocuments()) {
+                        Product product = toProduct(document);
+                        if (product != null) {
+                            products.add(product);
+                        }
+                    }
+                    return query.needsInMemoryPass() ? query.apply(products) : products;
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error querying products", e);
+                });
+    }
+
     // Get products by category
     public Task<QuerySnapshot> getProductsByCategory(String category) {
         return productsCollection
@@ -85,17 +329,66 @@ public class ProductService {
                 .get();
     }
 
+    /**
+     * Convert a product document into a change-tracking Product with its ID set.
+     * @param document A document from the products collection
+     * @return The product, or null if the document does not exist
+     */
+    @Nullable
+    public static Product toProduct(DocumentSnapshot document) {
+        Product product = document.toObject(Product.class);
+        if (product != null) {
+            product.setId(document.getId());
+            // Not migrated yet: availability is only in the legacy field
+            Boolean legacyAvailable = document.getBoolean(Product.LEGACY_FIELD_AVAILABLE);
+            if (!document.contains(Product.FIELD_IS_AVAILABLE) && legacyAvailable != null) {
+                product.setAvailable(legacyAvailable);
+            }
+            product.markLoaded();
+        }
+        return product;
+    }
+
     // Get product by ID
     public Task<DocumentSnapshot> getProductById(String productId) {
         return productsCollection.document(productId).get();
     }
 
-    // Update product
+    /**
+     * Save an edited product. A product obtained through {@link #toProduct(DocumentSnapshot)}
+     * tracks its changes, and only the fields that differ from the loaded state are sent,
+     * so fields edited elsewhere are not clobbered. A stock change is sent as an increment.
+     * If nothing changed no write is made. A product that was never loaded is written in full.
+     * @param productId ID of the product to update
+     * @param product The product with its new values
+     * @return Task<Void> that completes when the update is written
+     */
     public Task<Void> updateProduct(String productId, Product product) {
+        if (!product.isLoaded()) {
+            return productsCollection.document(productId)
+                    .set(product)
+                    .addOnSuccessListener(aVoid -> {
+                        Log.d(TAG, "Product updated successfully");
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.e(TAG, "Error updating product", e);
+                    });
+        }
+
+        Map<String, Object> changes = new HashMap<>(product.getChangedFields());
+        if (changes.isEmpty()) {
+            Log.d(TAG, "Product unchanged, skipping write");
+            return Tasks.forResult(null);
+        }
+        if (changes.containsKey(Product.FIELD_STOCK_AMOUNT)) {
+            Integer loadedStock = (Integer) product.getLoadedValue(Product.FIELD_STOCK_AMOUNT);
+            changes.put(Product.FIELD_STOCK_AMOUNT, FieldValue.increment(product.getStockAmount() - loadedStock));
+        }
         return productsCollection.document(productId)
-                .set(product)
+                .update(changes)
                 .addOnSuccessListener(aVoid -> {
-                    Log.d(TAG, "Product updated successfully");
+                    product.markLoaded();
+                    Log.d(TAG, "Product updated successfully: " + changes.keySet());
                 })
                 .addOnFailureListener(e -> {
                     Log.e(TAG, "Error updating product", e);
@@ -114,22 +407,32 @@ public class ProductService {
                 });
     }
 
-    // Search products by name
-    public Task<QuerySnapshot> searchProducts(String searchTerm) {
-        return productsCollection
-                .whereGreaterThanOrEqualTo("name", searchTerm)
-                .whereLessThanOrEqualTo("name", searchTerm + '\uf8ff')
-                .get();
+    /**
+     * Search products by name, brand, category and description using the local catalog index.
+     * Matching ignores case and diacritics, and the last word may be partially typed.
+     * Returns an empty list until the catalog has loaded.
+     * @param searchTerm Free text typed by the user
+     * @return Matching products, best match first
+     */
+    public List<Product> searchProducts(String searchTerm) {
+        return searchProducts(searchTerm, DEFAULT_SEARCH_LIMIT);
+    }
+
+    public List<Product> searchProducts(String searchTerm, int limit) {
+        return getCatalog().search(searchTerm, limit);
     }
 
     // Get available products
     public Task<QuerySnapshot> getAvailableProducts() {
         return productsCollection
-                .whereEqualTo("isAvailable", true)
+                .whereEqualTo(Product.FIELD_IS_AVAILABLE, true)
                 .get();
     }
 
-    // Update stock amount
+    /**
+     * Overwrite the stock amount with an absolute value. Concurrent changes made between
+     * reading and writing are lost; prefer {@link #adjustStock} or {@link #reserveStock}.
+     */
     public Task<Void> updateStockAmount(String productId, int newAmount) {
         return productsCollection.document(productId)
                 .update("stockAmount", newAmount)
@@ -140,4 +443,81 @@ public class ProductService {
                     Log.e(TAG, "Error updating stock amount", e);
                 });
     }
-} 
\ No newline at end of file
+
+    /**
+     * Atomically add to (or subtract from) the stock amount on the server, without reading it.
+     * Restocking also marks the product as available. Nothing stops a negative delta from
+     * taking the stock below zero; use {@link #reserveStock} when that must not happen.
+     * @param productId ID of the product
+     * @param delta Amount to add, negative to remove
+     * @return Task<Void> that completes when the change is written
+     */
+    public Task<Void> adjustStock(String productId, int delta) {
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(Product.FIELD_STOCK_AMOUNT, FieldValue.increment(delta));
+        if (delta > 0) {
+            fields.put(Product.FIELD_IS_AVAILABLE, true);
+        }
+        return productsCollection.document(productId)
+                .update(fields)
+                .addOnSuccessListener(aVoid -> {
+                    Log.d(TAG, "Stock adjusted by " + delta);
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error adjusting stock", e);
+                });
+    }
+
+    public Task<Void> incrementStock(String productId, int quantity) {
+        return adjustStock(productId, quantity);
+    }
+
+    public Task<Void> decrementStock(String productId, int quantity) {
+        return adjustStock(productId, -quantity);
+    }
+
+    /**
+     * Take quantity units out of stock in a transaction. Fails with
+     * {@link FirebaseFirestoreException.Code#FAILED_PRECONDITION} without writing anything if
+     * there is not enough stock, and marks the product unavailable when it sells out.
+     * @param productId ID of the product
+     * @param quantity Units to reserve, must be positive
+     * @return Task with the stock remaining after the reservation
+     */
+    public Task<Integer> reserveStock(String productId, int quantity) {
+        if (quantity <= 0) {
+            return Tasks.forException(new IllegalArgumentException("Quantity must be positive"));
+        }
+        DocumentReference document = productsCollection.document(productId);
+        return db.runTransaction((Transaction.Function<Integer>) transaction -> {
+                    DocumentSnapshot snapshot = transaction.get(document);
+                    if (!snapshot.exists()) {
+                        throw new FirebaseFirestoreException("Product not found: " + productId,
+                                FirebaseFirestoreException.Code.NOT_FOUND);
+                    }
+                    Long stored = snapshot.getLong(Product.FIELD_STOCK_AMOUNT);
+                    int stock = stored == null ? 0 : stored.intValue();
+                    if (stock < quantity) {
+                        throw new FirebaseFirestoreException("Insufficient stock: " + stock + " left, " + quantity + " requested",
+                                FirebaseFirestoreException.Code.FAILED_PRECONDITION);
+                    }
+                    int remaining = stock - quantity;
+                    transaction.update(document, Product.FIELD_STOCK_AMOUNT, remaining,
+                            Product.FIELD_IS_AVAILABLE, remaining > 0);
+                    return remaining;
+                })
+                .addOnSuccessListener(remaining -> {
+                    Log.d(TAG, "Reserved " + quantity + " units, " + remaining + " left");
+                })
+                .addOnFailureListener(e -> {
+                    Log.e(TAG, "Error reserving stock", e);
+                });
+    }
+
+    /**
+     * Return previously reserved units to stock, e.g. when an order is cancelled.
+     */
+    public Task<Void> releaseStock(String productId, int quantity) {
+        return adjustStock(productId, quantity);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,145 @@
+package com.example.hairstyle_consultant.utils;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The app's thread pools. Every piece of background work goes through one of these, so the
+ * number of threads stays fixed however much the app is used.
+ *
+ * - io: blocking network and disk work (image downloads, cache files, security provider)
+ * - cpu: computation such as list diffing and text processing, one thread per core (max 4)
+ * - callback: dispatch of future and task callbacks that do little work themselves
+ * - scheduler: delayed work such as timeouts and retries; tasks should only hand off
+ * - mainThread: posts to the main thread
+ *
+ * Get the shared instance from {@code HairStyleApplication.getExecutors()}.
+ */
+public class AppExecutors {
+    private static final String TAG = "AppExecutors";
+    private static final int IO_THREADS = 4;
+    private static final int MAX_CPU_THREADS = 4;
+    private static final int CALLBACK_THREADS = 2;
+
+    /**
+     * Point-in-time numbers for one pool.
+     */
+    public static class PoolStats {
+        public final String name;
+        public final int poolSize;
+        public final int activeThreads;
+        public final int queueDepth;
+        public final int largestPoolSize;
+        public final long completedTasks;
+
+        PoolStats(String name, ThreadPoolExecutor pool) {
+            this.name = name;
+            this.poolSize = pool.getPoolSize();
+            this.activeThreads = pool.getActiveCount();
+            this.queueDepth = pool.getQueue().size();
+            this.largestPoolSize = pool.getLargestPoolSize();
+            this.completedTasks = pool.getCompletedTaskCount();
+        }
+
+        @Override
+        public String toString() {
+            return name + ": " + activeThreads + "/" + poolSize + " active, " + queueDepth + " queued, "
+                    + completedTasks + " completed, peak " + largestPoolSize + " threads";
+        }
+    }
+
+    private final ThreadPoolExecutor io;
+    private final ThreadPoolExecutor cpu;
+    private final ThreadPoolExecutor callback;
+    private final ScheduledThreadPoolExecutor scheduler;
+    private final Executor mainThread;
+
+    public AppExecutors() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        io = newPool("io", IO_THREADS, Process.THREAD_PRIORITY_BACKGROUND);
+        cpu = newPool("cpu", Math.max(1, Math.min(cores, MAX_CPU_THREADS)), Process.THREAD_PRIORITY_BACKGROUND);
+        callback = newPool("callback", CALLBACK_THREADS, Process.THREAD_PRIORITY_DEFAULT);
+        scheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("scheduler", Process.THREAD_PRIORITY_DEFAULT));
+        scheduler.setRemoveOnCancelPolicy(true);
+        Handler mainHandler = new Handler(Looper.getMainLooper());
+        mainThread = mainHandler::post;
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public ExecutorService cpu() {
+        return cpu;
+    }
+
+    public ExecutorService callback() {
+        return callback;
+    }
+
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    public Executor mainThread() {
+        return mainThread;
+    }
+
+    public List<PoolStats> getStats() {
+        List<PoolStats> stats = new ArrayList<>(4);
+        stats.add(new PoolStats("io", io));
+        stats.add(new PoolStats("cpu", cpu));
+        stats.add(new PoolStats("callback", callback));
+        stats.add(new PoolStats("scheduler", scheduler));
+        return stats;
+    }
+
+    public void logStats() {
+        for (PoolStats stats : getStats()) {
+            Log.d(TAG, stats.toString());
+        }
+    }
+
+    /**
+     * Fixed-size pool whose idle threads time out, so an idle app holds no threads.
+     */
+    private static ThreadPoolExecutor newPool(String name, int threads, int priority) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new NamedThreadFactory(name, priority));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static class NamedThreadFactory implements ThreadFactory {
+        private final String name;
+        private final int priority;
+        private final AtomicInteger count = new AtomicInteger(1);
+
+        NamedThreadFactory(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(priority);
+                runnable.run();
+            }, "hs-" + name + "-" + count.getAndIncrement());
+        }
+    }
+}
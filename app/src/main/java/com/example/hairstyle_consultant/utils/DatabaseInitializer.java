@@ -1,39 +1,211 @@
 package com.example.hairstyle_consultant.utils;
 
+import android.content.Context;
+import android.content.SharedPreferences;
 import android.util.Log;
 
 import com.example.hairstyle_consultant.models.Product;
 import com.example.hairstyle_consultant.services.ProductService;
 import com.google.android.gms.tasks.Task;
-import com.google.firebase.firestore.QuerySnapshot;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.DocumentReference;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+/**
+ * Seeds the products collection with the sample catalog.
+ *
+ * A manifest document records the seed version, a hash of the whole seed and a hash per
+ * seed item. Checking it is a single-document read, and once an install has seen the
+ * current seed applied it remembers that locally and skips even that read. Seed items whose
+ * document does not exist yet are created; an existing one is left as it is, whatever the
+ * seed says, since its price, stock and availability are live data by then.
+ *
+ * The manifest also records one-off data migrations, so that each runs once for the whole
+ * catalog rather than once per install.
+ */
 public class DatabaseInitializer {
     private static final String TAG = "DatabaseInitializer";
+    // Bump when sample products are added below; 1 was the unversioned seed. Products that
+    // already exist are never rewritten, so edits to their seed values only reach new catalogs
+    private static final int SEED_VERSION = 2;
+    private static final String PREFS_NAME = "database_initializer";
+    private static final String PREF_SEED_VERSION = "seed_version";
+    private static final String PREF_SEED_HASH = "seed_hash";
+    private static final String PREF_AVAILABILITY_MIGRATED = "availability_migrated";
+    private static final String MANIFEST_COLLECTION = "meta";
+    private static final String MANIFEST_DOCUMENT = "productSeed";
+    private static final String SEED_ID_PREFIX = "seed-";
+    private static final String MANIFEST_VERSION = "version";
+    private static final String MANIFEST_AVAILABILITY_MIGRATED = "availabilityMigrated";
+
     private final ProductService productService;
+    private final SharedPreferences preferences;
+    private final DocumentReference manifestRef;
 
-    public DatabaseInitializer() {
+    public DatabaseInitializer(Context context) {
         this.productService = new ProductService();
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        this.manifestRef = FirebaseFirestore.getInstance().collection(MANIFEST_COLLECTION).document(MANIFEST_DOCUMENT);
     }
 
     public void initializeProducts() {
-        // First check if products already exist
-        productService.getAllProducts()
-                .addOnSuccessListener(querySnapshot -> {
-                    if (querySnapshot.isEmpty()) {
-                        addSampleProducts();
-                    } else {
-                        Log.d(TAG, "Products already exist in database");
+        Map<String, Product> seed = buildSeed();
+        Map<String, String> itemHashes = new TreeMap<>();
+        for (Map.Entry<String, Product> entry : seed.entrySet()) {
+            itemHashes.put(entry.getKey(), hashProduct(entry.getValue()));
+        }
+        String seedHash = Hashing.sha256Hex(itemHashes.toString());
+
+        // Already applied on this install: no network at all
+        boolean seedApplied = preferences.getInt(PREF_SEED_VERSION, 0) == SEED_VERSION
+                && seedHash.equals(preferences.getString(PREF_SEED_HASH, null));
+        boolean availabilityMigrated = preferences.getBoolean(PREF_AVAILABILITY_MIGRATED, false);
+        if (seedApplied && availabilityMigrated) {
+            Log.d(TAG, "Seed version " + SEED_VERSION + " already applied");
+            return;
+        }
+
+        manifestRef.get().addOnSuccessListener(manifest -> {
+            if (!availabilityMigrated) {
+                migrateAvailabilityIfNeeded(manifest);
+            }
+            if (!seedApplied) {
+                seedIfNeeded(manifest, seed, itemHashes, seedHash);
+            }
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Error reading seed manifest", e);
+        });
+    }
+
+    private void seedIfNeeded(DocumentSnapshot manifest, Map<String, Product> seed, Map<String, String> itemHashes,
+                              String seedHash) {
+        Task<Void> applied;
+        // The manifest may exist holding only migration flags
+        if (manifest.contains(MANIFEST_VERSION)) {
+            applied = applySeed(manifest, seed, itemHashes, seedHash);
+        } else {
+            // Catalogs seeded before manifests existed: adopt them instead of duplicating
+            applied = productService.hasAnyProducts().continueWithTask(hasProducts -> {
+                if (hasProducts.getResult()) {
+                    Log.d(TAG, "Products already exist, recording seed manifest only");
+                    return writeManifest(itemHashes, seedHash);
+                }
+                return applySeed(null, seed, itemHashes, seedHash);
+            });
+        }
+        applied.addOnSuccessListener(aVoid -> {
+            preferences.edit()
+                    .putInt(PREF_SEED_VERSION, SEED_VERSION)
+                    .putString(PREF_SEED_HASH, seedHash)
+                    .apply();
+        }).addOnFailureListener(e -> {
+            Log.e(TAG, "Error seeding products", e);
+        });
+    }
+
+    /**
+     * Products written before availability was mapped to "isAvailable" keep it in "available",
+     * where the availability filter and its indexes cannot see it. The first install to see
+     * the manifest without the migrated flag migrates them and sets it; every other install
+     * only reads the flag. Running the migration twice is harmless.
+     */
+    private void migrateAvailabilityIfNeeded(DocumentSnapshot manifest) {
+        if (Boolean.TRUE.equals(manifest.getBoolean(MANIFEST_AVAILABILITY_MIGRATED))) {
+            preferences.edit().putBoolean(PREF_AVAILABILITY_MIGRATED, true).apply();
+            return;
+        }
+        productService.migrateAvailabilityField()
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.<Void>forException(task.getException());
                     }
+                    Map<String, Object> flag = new HashMap<>();
+                    flag.put(MANIFEST_AVAILABILITY_MIGRATED, true);
+                    return manifestRef.set(flag, SetOptions.merge());
+                })
+                .addOnSuccessListener(aVoid -> {
+                    preferences.edit().putBoolean(PREF_AVAILABILITY_MIGRATED, true).apply();
                 })
                 .addOnFailureListener(e -> {
-                    Log.e(TAG, "Error checking products", e);
+                    Log.e(TAG, "Error migrating product availability", e);
                 });
     }
 
-    private void addSampleProducts() {
+    @SuppressWarnings("unchecked")
+    private Task<Void> applySeed(DocumentSnapshot manifest, Map<String, Product> seed,
+                                 Map<String, String> itemHashes, String seedHash) {
+        Map<String, Object> appliedHashes = new HashMap<>();
+        if (manifest != null) {
+            Long version = manifest.getLong(MANIFEST_VERSION);
+            if (version != null && version == SEED_VERSION && seedHash.equals(manifest.getString("hash"))) {
+                Log.d(TAG, "Seed manifest is current");
+                return Tasks.forResult(null);
+            }
+            Object items = manifest.get("items");
+            if (items instanceof Map) {
+                appliedHashes = (Map<String, Object>) items;
+            }
+        }
+
+        List<Product> changed = new ArrayList<>();
+        for (Map.Entry<String, String> entry : itemHashes.entrySet()) {
+            if (!entry.getValue().equals(appliedHashes.get(entry.getKey()))) {
+                changed.add(seed.get(entry.getKey()));
+            }
+        }
+        if (changed.isEmpty()) {
+            return writeManifest(itemHashes, seedHash);
+        }
+
+        return productService.createProductsIfAbsent(changed)
+                .continueWithTask(task -> {
+                    if (!task.isSuccessful()) {
+                        return Tasks.<Void>forException(task.getException());
+                    }
+                    Log.d(TAG, "Created " + task.getResult() + " of " + changed.size() + " new or changed sample products");
+                    return writeManifest(itemHashes, seedHash);
+                });
+    }
+
+    private Task<Void> writeManifest(Map<String, String> itemHashes, String seedHash) {
+        Map<String, Object> manifest = new HashMap<>();
+        manifest.put(MANIFEST_VERSION, SEED_VERSION);
+        manifest.put("hash", seedHash);
+        manifest.put("items", new HashMap<>(itemHashes));
+        manifest.put("updatedAt", FieldValue.serverTimestamp());
+        // Replaces the seed fields only, keeping the migration flags
+        return manifestRef.set(manifest, SetOptions.mergeFields(MANIFEST_VERSION, "hash", "items", "updatedAt"));
+    }
+
+    /**
+     * @return Sample products keyed by a stable seed key, each with a deterministic document ID
+     */
+    private Map<String, Product> buildSeed() {
+        Map<String, Product> seed = new TreeMap<>();
+        for (Product product : buildSampleProducts()) {
+            String key = String.join("-", TextNormalizer.tokenize(product.getName()));
+            product.setId(SEED_ID_PREFIX + key);
+            seed.put(key, product);
+        }
+        return seed;
+    }
+
+    private static String hashProduct(Product product) {
+        return Hashing.sha256Hex(product.getName() + '|' + product.getDescription() + '|' + product.getPrice()
+                + '|' + product.getStockAmount() + '|' + product.getCategory() + '|'
+                + product.getBrand() + '|' + product.getImageUrl() + '|' + product.isAvailable());
+    }
+
+    private List<Product> buildSampleProducts() {
         List<Product> sampleProducts = new ArrayList<>();
 
         // Shampoos
@@ -210,15 +382,6 @@ public class DatabaseInitializer {
                 true
         ));
 
-        // Add all products to Firestore
-        for (Product product : sampleProducts) {
-            productService.addProduct(product)
-                    .addOnSuccessListener(documentReference -> {
-                        Log.d(TAG, "Sample product added: " + product.getName());
-                    })
-                    .addOnFailureListener(e -> {
-                        Log.e(TAG, "Error adding sample product: " + product.getName(), e);
-                    });
-        }
+        return sampleProducts;
     }
-} 
\ No newline at end of file
+}
\ No newline at end of file
@@ -0,0 +1,132 @@
+package com.example.hairstyle_consultant.utils;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Size-bounded file cache. Entries are files named by the hash of their key, and the least
+ * recently used ones (by modification time, refreshed on every hit) are deleted once the
+ * directory grows past maxBytes.
+ */
+public class DiskCache {
+    private static final String TAG = "DiskCache";
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+    private long currentBytes = -1;
+
+    public DiskCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * @return The cached file for key, or null if it is not cached
+     */
+    public synchronized File get(String key) {
+        File file = fileFor(key);
+        if (!file.exists()) {
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Copy a stream into the cache under key. The entry only becomes visible once it has
+     * been written completely.
+     * @return The cached file
+     */
+    public File put(String key, InputStream input) throws IOException {
+        ensureDirectory();
+        File target = fileFor(key);
+        File temp = new File(directory, target.getName() + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try (OutputStream output = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                output.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+
+        synchronized (this) {
+            computeSizeIfNeeded();
+            if (target.exists()) {
+                currentBytes -= target.length();
+                target.delete();
+            }
+            if (!temp.renameTo(target)) {
+                temp.delete();
+                throw new IOException("Could not move " + temp + " into the cache");
+            }
+            currentBytes += target.length();
+            trimToSize();
+        }
+        return target;
+    }
+
+    public synchronized void remove(String key) {
+        File file = fileFor(key);
+        if (file.exists()) {
+            computeSizeIfNeeded();
+            currentBytes -= file.length();
+            file.delete();
+        }
+    }
+
+    private void ensureDirectory() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create cache directory " + directory);
+        }
+    }
+
+    private void computeSizeIfNeeded() {
+        if (currentBytes >= 0) {
+            return;
+        }
+        currentBytes = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().endsWith(TEMP_SUFFIX)) {
+                    currentBytes += file.length();
+                }
+            }
+        }
+    }
+
+    private void trimToSize() {
+        if (currentBytes <= maxBytes) {
+            return;
+        }
+        File[] files = directory.listFiles((dir, name) -> !name.endsWith(TEMP_SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (currentBytes <= maxBytes) {
+                break;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                currentBytes -= length;
+                Log.d(TAG, "Evicted " + file.getName());
+            }
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, Hashing.sha1Hex(key));
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.hairstyle_consultant.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hex digests of text, for cache keys, file names and change detection. Not for passwords.
+ */
+public final class Hashing {
+    private Hashing() {
+    }
+
+    /**
+     * @return The SHA-1 of the text's UTF-8 bytes, as 40 lowercase hex digits
+     */
+    public static String sha1Hex(String text) {
+        return hex("SHA-1", text);
+    }
+
+    /**
+     * @return The SHA-256 of the text's UTF-8 bytes, as 64 lowercase hex digits
+     */
+    public static String sha256Hex(String text) {
+        return hex("SHA-256", text);
+    }
+
+    private static String hex(String algorithm, String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance(algorithm).digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java and Android runtime is required to provide both
+            throw new IllegalStateException(algorithm + " not available", e);
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.example.hairstyle_consultant.utils;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.TextUtils;
+import android.util.Log;
+import android.util.LruCache;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.example.hairstyle_consultant.HairStyleApplication;
+import com.example.hairstyle_consultant.R;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Loads remote images into ImageViews for scrolling lists.
+ *
+ * Two cache tiers: decoded bitmaps in a memory LruCache bounded by bytes, and downloaded
+ * files in a size-bounded {@link DiskCache}. Bitmaps are downsampled at decode time to the
+ * ImageView's size. Requests for the same image and size share one download and decode,
+ * and a request is cancelled once no ImageView is waiting for it any more.
+ *
+ * Usage (from a ViewHolder):
+ * ImageLoader.getInstance(context).load(product.getImageUrl(), imageView);   // in bind
+ * ImageLoader.getInstance(context).cancel(imageView);                        // in onViewRecycled
+ */
+public class ImageLoader {
+    private static final String TAG = "ImageLoader";
+    private static final String DISK_CACHE_DIR = "images";
+    private static final long DISK_CACHE_BYTES = 50L * 1024 * 1024;
+    private static final int TIMEOUT_MS = 15000;
+    // Used when the ImageView has no fixed size yet
+    private static final int DEFAULT_TARGET_PX = 256;
+    private static ImageLoader instance;
+
+    private final LruCache<String, Bitmap> memoryCache;
+    private final DiskCache diskCache;
+    private final ExecutorService executor = HairStyleApplication.getExecutors().io();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // Keyed by cache key; only touched on the main thread
+    private final Map<String, Request> inFlight = new HashMap<>();
+    // URLs that failed to download this session, so scrolling does not retry them on every bind
+    private final Set<String> failedUrls = Collections.synchronizedSet(new HashSet<>());
+
+    private static class Request {
+        final List<ImageView> targets = new ArrayList<>();
+        Future<?> future;
+    }
+
+    private ImageLoader(Context context) {
+        // Use an eighth of the app's heap for decoded bitmaps
+        int maxKb = (int) (Runtime.getRuntime().maxMemory() / 1024 / 8);
+        memoryCache = new LruCache<String, Bitmap>(maxKb) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount() / 1024;
+            }
+        };
+        diskCache = new DiskCache(new File(context.getCacheDir(), DISK_CACHE_DIR), DISK_CACHE_BYTES);
+    }
+
+    public static synchronized ImageLoader getInstance(Context context) {
+        if (instance == null) {
+            instance = new ImageLoader(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    /**
+     * Show the image at url in imageView, replacing any request the view was waiting for.
+     * Must be called on the main thread.
+     */
+    public void load(String url, ImageView imageView) {
+        cancel(imageView);
+        imageView.setImageDrawable(null);
+        if (TextUtils.isEmpty(url) || failedUrls.contains(url)) {
+            return;
+        }
+
+        int width = targetSize(imageView, true);
+        int height = targetSize(imageView, false);
+        String key = url + '@' + width + 'x' + height;
+        Bitmap cached = memoryCache.get(key);
+        if (cached != null) {
+            imageView.setImageBitmap(cached);
+            return;
+        }
+
+        imageView.setTag(R.id.image_loader_key, key);
+        Request request = inFlight.get(key);
+        if (request != null) {
+            request.targets.add(imageView);
+            return;
+        }
+        request = new Request();
+        request.targets.add(imageView);
+        inFlight.put(key, request);
+        request.future = executor.submit(() -> {
+            Bitmap bitmap = fetch(url, width, height);
+            mainHandler.post(() -> deliver(key, bitmap));
+        });
+    }
+
+    /**
+     * Stop waiting for an image in imageView, e.g. because its ViewHolder was recycled.
+     * The download is cancelled if no other view wants the same image.
+     */
+    public void cancel(ImageView imageView) {
+        Object key = imageView.getTag(R.id.image_loader_key);
+        if (key == null) {
+            return;
+        }
+        imageView.setTag(R.id.image_loader_key, null);
+        Request request = inFlight.get(key);
+        if (request == null) {
+            return;
+        }
+        request.targets.remove(imageView);
+        if (request.targets.isEmpty()) {
+            inFlight.remove(key);
+            request.future.cancel(true);
+        }
+    }
+
+    private void deliver(String key, Bitmap bitmap) {
+        Request request = inFlight.remove(key);
+        if (request == null) {
+            return;
+        }
+        if (bitmap != null) {
+            memoryCache.put(key, bitmap);
+        }
+        for (ImageView target : request.targets) {
+            // The view may have been rebound to another image since it joined this request
+            if (key.equals(target.getTag(R.id.image_loader_key))) {
+                target.setTag(R.id.image_loader_key, null);
+                if (bitmap != null) {
+                    target.setImageBitmap(bitmap);
+                }
+            }
+        }
+    }
+
+    private Bitmap fetch(String url, int width, int height) {
+        try {
+            File file = diskCache.get(url);
+            if (file == null) {
+                file = download(url);
+            }
+            if (Thread.currentThread().isInterrupted()) {
+                return null;
+            }
+            return decodeSampled(file, width, height);
+        } catch (IOException e) {
+            if (isCancellation(e)) {
+                // cancel() interrupted the download; the URL itself may be fine
+                return null;
+            }
+            failedUrls.add(url);
+            Log.w(TAG, "Could not load image " + url + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static boolean isCancellation(IOException e) {
+        // A read timeout is also an InterruptedIOException, but a genuine failure
+        return Thread.currentThread().isInterrupted()
+                || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException));
+    }
+
+    private File download(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(TIMEOUT_MS);
+        connection.setReadTimeout(TIMEOUT_MS);
+        try {
+            if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+                throw new IOException("HTTP " + connection.getResponseCode());
+            }
+            try (InputStream input = connection.getInputStream()) {
+                return diskCache.put(url, input);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static Bitmap decodeSampled(File file, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        // Largest power of two that keeps both sides at least as big as the target
+        int sampleSize = 1;
+        while (options.outWidth / (sampleSize * 2) >= width && options.outHeight / (sampleSize * 2) >= height) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    private static int targetSize(ImageView imageView, boolean horizontal) {
+        ViewGroup.LayoutParams params = imageView.getLayoutParams();
+        int size = params == null ? 0 : (horizontal ? params.width : params.height);
+        if (size <= 0) {
+            size = horizontal ? imageView.getWidth() : imageView.getHeight();
+        }
+        return size > 0 ? size : DEFAULT_TARGET_PX;
+    }
+}
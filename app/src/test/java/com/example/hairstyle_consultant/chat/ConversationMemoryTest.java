@@ -0,0 +1,180 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConversationMemoryTest {
+    /**
+     * Records every request and leaves it pending until the test completes it.
+     */
+    private static class FakeSummarizer implements ConversationMemory.Summarizer {
+        final List<String> previousSummaries = new ArrayList<>();
+        final List<List<String>> batches = new ArrayList<>();
+        final List<SettableFuture<String>> results = new ArrayList<>();
+
+        @Override
+        public ListenableFuture<String> summarize(String previousSummary, List<String> turns) {
+            previousSummaries.add(previousSummary);
+            batches.add(new ArrayList<>(turns));
+            SettableFuture<String> result = SettableFuture.create();
+            results.add(result);
+            return result;
+        }
+
+        SettableFuture<String> last() {
+            return results.get(results.size() - 1);
+        }
+    }
+
+    private final FakeSummarizer summarizer = new FakeSummarizer();
+
+    private ConversationMemory memory(int tokenBudget, int verbatimEntries) {
+        return new ConversationMemory(summarizer, MoreExecutors.directExecutor(), tokenBudget, verbatimEntries);
+    }
+
+    // An entry of exactly the given number of estimated tokens
+    private static String entry(char c, int tokens) {
+        char[] text = new char[tokens * 4];
+        Arrays.fill(text, c);
+        return new String(text);
+    }
+
+    private static int tokens(List<String> context) {
+        int total = 0;
+        for (String entry : context) {
+            total += ConversationMemory.estimateTokens(entry);
+        }
+        return total;
+    }
+
+    @Test
+    public void estimateTokens_roundsUp() {
+        assertEquals(0, ConversationMemory.estimateTokens(null));
+        assertEquals(0, ConversationMemory.estimateTokens(""));
+        assertEquals(1, ConversationMemory.estimateTokens("abcd"));
+        assertEquals(2, ConversationMemory.estimateTokens("abcde"));
+    }
+
+    @Test
+    public void withinLimits_keepsEverythingVerbatim() {
+        ConversationMemory memory = memory(ConversationMemory.DEFAULT_TOKEN_BUDGET, 4);
+        memory.add("User: a");
+        memory.add("Assistant: b");
+        memory.add("User: c");
+        assertTrue(summarizer.batches.isEmpty());
+        assertEquals(Arrays.asList("User: a", "Assistant: b", "User: c"), memory.getContext());
+    }
+
+    @Test
+    public void overVerbatimEntries_summarizesOldest() {
+        ConversationMemory memory = memory(ConversationMemory.DEFAULT_TOKEN_BUDGET, 2);
+        memory.add("a");
+        memory.add("b");
+        memory.add("c");
+        assertEquals(Collections.singletonList(Collections.singletonList("a")), summarizer.batches);
+        assertEquals("", summarizer.previousSummaries.get(0));
+
+        summarizer.last().set(" S1 ");
+        assertEquals("S1", memory.getSummary());
+        assertEquals(1, memory.getSummarizedCount());
+        List<String> context = memory.getContext();
+        assertEquals(3, context.size());
+        assertTrue(context.get(0).endsWith("S1"));
+        assertEquals(Arrays.asList("b", "c"), context.subList(1, 3));
+    }
+
+    @Test
+    public void overTokenBudget_summarizesOldest() {
+        ConversationMemory memory = memory(10, ConversationMemory.DEFAULT_VERBATIM_ENTRIES);
+        memory.add(entry('a', 4));
+        memory.add(entry('b', 4));
+        assertTrue(summarizer.batches.isEmpty());
+        memory.add(entry('c', 4));
+        assertEquals(Collections.singletonList(Collections.singletonList(entry('a', 4))), summarizer.batches);
+    }
+
+    @Test
+    public void context_staysWithinBudgetWhileSummaryIsInFlight() {
+        ConversationMemory memory = memory(12, ConversationMemory.DEFAULT_VERBATIM_ENTRIES);
+        for (char c = 'a'; c <= 'h'; c++) {
+            memory.add(entry(c, 5));
+        }
+        // Only the first batch has been requested; the rest wait for it
+        assertEquals(1, summarizer.batches.size());
+        List<String> context = memory.getContext();
+        assertTrue(tokens(context) <= 12);
+        assertEquals(entry('h', 5), context.get(context.size() - 1));
+    }
+
+    @Test
+    public void newestEntry_keptEvenIfOverBudget() {
+        ConversationMemory memory = memory(5, ConversationMemory.DEFAULT_VERBATIM_ENTRIES);
+        memory.add(entry('a', 2));
+        memory.add(entry('b', 20));
+        assertEquals(Collections.singletonList(entry('b', 20)), memory.getContext());
+    }
+
+    @Test
+    public void turnsArrivingMeanwhile_foldedIntoNextSummary() {
+        ConversationMemory memory = memory(ConversationMemory.DEFAULT_TOKEN_BUDGET, 1);
+        memory.add("a");
+        memory.add("b");
+        memory.add("c");
+        assertEquals(1, summarizer.batches.size());
+
+        summarizer.last().set("S1");
+        assertEquals(2, summarizer.batches.size());
+        assertEquals("S1", summarizer.previousSummaries.get(1));
+        assertEquals(Collections.singletonList("b"), summarizer.batches.get(1));
+
+        summarizer.last().set("S2");
+        assertEquals("S2", memory.getSummary());
+        assertEquals(2, memory.getSummarizedCount());
+    }
+
+    @Test
+    public void failedSummary_retriedOnNextAdd() {
+        ConversationMemory memory = memory(ConversationMemory.DEFAULT_TOKEN_BUDGET, 1);
+        memory.add("a");
+        memory.add("b");
+        summarizer.last().setException(new IOException("offline"));
+        assertEquals("", memory.getSummary());
+        // Still sent verbatim while it is unsummarized
+        assertEquals(Arrays.asList("a", "b"), memory.getContext());
+
+        memory.add("c");
+        assertEquals(2, summarizer.batches.size());
+        assertEquals(Arrays.asList("a", "b"), summarizer.batches.get(1));
+    }
+
+    @Test
+    public void emptySummary_ignored() {
+        ConversationMemory memory = memory(ConversationMemory.DEFAULT_TOKEN_BUDGET, 1);
+        memory.add("a");
+        memory.add("b");
+        summarizer.last().set("  ");
+        assertEquals("", memory.getSummary());
+        assertEquals(0, memory.getSummarizedCount());
+    }
+
+    @Test
+    public void cancel_cancelsSummaryInFlight() {
+        ConversationMemory memory = memory(ConversationMemory.DEFAULT_TOKEN_BUDGET, 1);
+        memory.add("a");
+        memory.add("b");
+        memory.cancel();
+        assertTrue(summarizer.last().isCancelled());
+        assertEquals("", memory.getSummary());
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.hairstyle_consultant.chat;
+
+import com.example.hairstyle_consultant.models.Product;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class IntentClassifierTest {
+    private static final Product DOVE = new Product("1", "Dove Intense Repair Shampoo", "", 120000, 5,
+            "Shampoo", "Dove", null, true);
+    private static final Product TRESEMME = new Product("2", "TRESemmé Keratin Smooth Conditioner", "", 150000, 0,
+            "Conditioner", "TRESemmé", null, true);
+    private static final List<Product> CATALOG = Arrays.asList(DOVE, TRESEMME);
+
+    private final IntentClassifier classifier = new IntentClassifier();
+
+    private IntentClassifier.Classification classify(String message) {
+        return classifier.classify(message, CATALOG);
+    }
+
+    @Test
+    public void priceQuestion_namesProduct() {
+        IntentClassifier.Classification result = classify("Dầu gội Dove Intense Repair giá bao nhiêu?");
+        assertEquals(IntentClassifier.Intent.PRICE, result.intent);
+        assertEquals(Arrays.asList(DOVE), result.products);
+        assertFalse(result.english);
+    }
+
+    @Test
+    public void priceQuestion_leadingGia() {
+        assertEquals(IntentClassifier.Intent.PRICE, classify("Giá Dove Intense Repair?").intent);
+        assertEquals(IntentClassifier.Intent.PRICE, classify("Dove Intense Repair bao nhiêu tiền").intent);
+    }
+
+    @Test
+    public void priceQuestion_english() {
+        IntentClassifier.Classification result = classify("How much is the Dove Intense Repair Shampoo?");
+        assertEquals(IntentClassifier.Intent.PRICE, result.intent);
+        assertTrue(result.english);
+    }
+
+    @Test
+    public void reviewRequest_isOpenEnded() {
+        assertEquals(IntentClassifier.Intent.OPEN_ENDED, classify("Đánh giá dầu gội Dove Intense Repair").intent);
+    }
+
+    @Test
+    public void usageFrequency_isOpenEnded() {
+        assertEquals(IntentClassifier.Intent.OPEN_ENDED,
+                classify("Dầu gội Dove Intense Repair dùng bao nhiêu lần một tuần?").intent);
+        assertEquals(IntentClassifier.Intent.OPEN_ENDED,
+                classify("Dove Intense Repair dùng được bao nhiêu lâu?").intent);
+    }
+
+    @Test
+    public void howQuestion_isOpenEnded() {
+        assertEquals(IntentClassifier.Intent.OPEN_ENDED, classify("Dove Intense Repair thế nào?").intent);
+    }
+
+    @Test
+    public void adviceWinsOverPrice() {
+        assertEquals(IntentClassifier.Intent.OPEN_ENDED,
+                classify("Nên mua Dove Intense Repair không, giá bao nhiêu?").intent);
+    }
+
+    @Test
+    public void stockQuestion() {
+        IntentClassifier.Classification result = classify("TRESemmé Keratin Smooth còn hàng không?");
+        assertEquals(IntentClassifier.Intent.STOCK, result.intent);
+        assertEquals(Arrays.asList(TRESEMME), result.products);
+    }
+
+    @Test
+    public void categoryList_byAlias() {
+        IntentClassifier.Classification result = classify("Liệt kê các loại dầu xả");
+        assertEquals(IntentClassifier.Intent.CATEGORY, result.intent);
+        assertEquals("Conditioner", result.category);
+    }
+
+    @Test
+    public void profileQuestion() {
+        assertEquals(IntentClassifier.Intent.PROFILE, classify("Thông tin tóc của tôi").intent);
+    }
+
+    @Test
+    public void emptyMessage_isOpenEnded() {
+        assertEquals(IntentClassifier.Intent.OPEN_ENDED, classify("  ?! ").intent);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.hairstyle_consultant.chat;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ResponseCacheTest {
+    private static final String HAIR = "Kiểu tóc: Tóc thẳng\nVấn đề tóc: Gàu";
+    private static final String PRODUCTS = "- Dầu Gội Trị Gàu Clear";
+    private static final String QUESTION = "Tôi nên dùng dầu gội nào?";
+
+    private static List<String> history(String... entries) {
+        return Arrays.asList(entries);
+    }
+
+    @Test
+    public void keyFor_shortQuestionNotCached() {
+        assertNull(ResponseCache.keyFor("ok", "Nguyễn Thị Lan", HAIR, PRODUCTS, history("User: ok")));
+    }
+
+    @Test
+    public void keyFor_sharedByUsersWithSameHairProfile() {
+        String lan = ResponseCache.keyFor(QUESTION, "Nguyễn Thị Lan", HAIR, PRODUCTS,
+                history("User: Tóc tôi bị gàu", "Assistant: Chào Lan, bạn nên thử Clear.", "User: " + QUESTION));
+        String minh = ResponseCache.keyFor(QUESTION, "Trần Văn Minh", HAIR, PRODUCTS,
+                history("User: Tóc tôi bị gàu", "Assistant: Chào Minh, bạn nên thử Clear.", "User: " + QUESTION));
+        assertNotNull(lan);
+        assertEquals(lan, minh);
+    }
+
+    @Test
+    public void keyFor_missesOnDifferentHairOrProducts() {
+        List<String> history = Collections.singletonList("User: " + QUESTION);
+        String key = ResponseCache.keyFor(QUESTION, "Lan", HAIR, PRODUCTS, history);
+        assertNotEquals(key, ResponseCache.keyFor(QUESTION, "Lan", "Kiểu tóc: Tóc xoăn", PRODUCTS, history));
+        assertNotEquals(key, ResponseCache.keyFor(QUESTION, "Lan", HAIR, "- Dove", history));
+    }
+
+    @Test
+    public void keyFor_questionMatchesInNormalizedForm() {
+        assertEquals(ResponseCache.keyFor(QUESTION, "Lan", HAIR, PRODUCTS, history("User: " + QUESTION)),
+                ResponseCache.keyFor("toi NEN dung dau goi nao", "Lan", HAIR, PRODUCTS, history("User: x")));
+    }
+
+    @Test
+    public void name_movesToAnotherUser() {
+        String stored = ResponseCache.removeName("Chào Lan! Nguyễn Thị Lan ơi, Clear hợp với bạn.", "Nguyễn Thị Lan");
+        assertFalse(stored.contains("Lan"));
+        assertEquals("Chào Minh! Trần Văn Minh ơi, Clear hợp với bạn.",
+                ResponseCache.restoreName(stored, "Trần Văn Minh"));
+    }
+
+    @Test
+    public void name_onlyReplacedAsWholeWord() {
+        String stored = ResponseCache.removeName("An ơi, tóc an toàn. Anh thử nhé", "Lê An");
+        assertEquals("Bình ơi, tóc an toàn. Anh thử nhé", ResponseCache.restoreName(stored, "Lê Bình"));
+    }
+
+    @Test
+    public void name_missingLeavesTextOrAddressesUserGenerically() {
+        assertEquals("Chào Lan", ResponseCache.removeName("Chào Lan", null));
+        String stored = ResponseCache.removeName("Chào Lan", "Lan");
+        assertEquals("Chào bạn", ResponseCache.restoreName(stored, " "));
+    }
+}
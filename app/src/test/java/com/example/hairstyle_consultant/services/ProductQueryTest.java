@@ -0,0 +1,165 @@
+package com.example.hairstyle_consultant.services;
+
+import com.example.hairstyle_consultant.models.Product;
+import com.google.firebase.firestore.PropertyName;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+public class ProductQueryTest {
+    private static final Product CLEAR = new Product("1", "Dầu Gội Trị Gàu Clear", "Sạch gàu", 95000, 10,
+            "Shampoo", "Clear", null, true);
+    private static final Product DOVE = new Product("2", "Dove Intense Repair Shampoo", "Phục hồi tóc hư tổn",
+            110000, 0, "Shampoo", "Dove", null, false);
+    private static final Product TRESEMME = new Product("3", "TRESemmé Keratin Smooth", "Dầu xả suôn mượt",
+            150000, 4, "Conditioner", "TRESemmé", null, true);
+    private static final Product PHILIPS = new Product("4", "Máy Sấy Tóc Philips", "2000W", 450000, 2,
+            "Tools", "Philips", null, true);
+    private static final List<Product> CATALOG = Arrays.asList(CLEAR, DOVE, TRESEMME, PHILIPS);
+
+    private static final Pattern INDEX_FIELDS = Pattern.compile("\"fields\"\\s*:\\s*\\[(.*?)]", Pattern.DOTALL);
+    private static final Pattern INDEX_FIELD = Pattern.compile(
+            "\"fieldPath\"\\s*:\\s*\"([^\"]+)\"\\s*,\\s*\"order\"\\s*:\\s*\"([A-Z]+)\"");
+
+    @Test
+    public void matches_equalityFilters() {
+        ProductQuery query = ProductQuery.builder().category("Shampoo").available(true).build();
+        assertTrue(query.matches(CLEAR));
+        assertFalse(query.matches(DOVE));
+        assertFalse(query.matches(TRESEMME));
+        assertFalse(ProductQuery.builder().brand("Dove").build().matches(CLEAR));
+    }
+
+    @Test
+    public void matches_priceRangeIsInclusive() {
+        ProductQuery query = ProductQuery.builder().priceBetween(95000, 150000).build();
+        assertTrue(query.matches(CLEAR));
+        assertTrue(query.matches(TRESEMME));
+        assertFalse(query.matches(PHILIPS));
+    }
+
+    @Test
+    public void matches_textIsPrefixAndDiacriticInsensitive() {
+        assertTrue(ProductQuery.builder().text("dau goi").build().matches(CLEAR));
+        assertTrue(ProductQuery.builder().text("PHỤC hồi").build().matches(DOVE));
+        assertTrue(ProductQuery.builder().text("kera").build().matches(TRESEMME));
+        assertFalse(ProductQuery.builder().text("dau goi philips").build().matches(CLEAR));
+    }
+
+    @Test
+    public void apply_filtersSortsAndLimits() {
+        ProductQuery query = ProductQuery.builder()
+                .minStock(1)
+                .sortBy(ProductQuery.SortField.PRICE, true)
+                .limit(2)
+                .build();
+        assertEquals(Arrays.asList(PHILIPS, TRESEMME), query.apply(CATALOG));
+    }
+
+    @Test
+    public void apply_sortsByNameInFirestoreOrder() {
+        ProductQuery query = ProductQuery.builder().category("Shampoo").sortBy(ProductQuery.SortField.NAME, false).build();
+        // Code point order, as Firestore sorts strings: "Do" before "Dầ"
+        assertEquals(Arrays.asList(DOVE, CLEAR), query.apply(CATALOG));
+    }
+
+    @Test
+    public void apply_doesNotModifyInput() {
+        List<Product> products = new ArrayList<>(CATALOG);
+        List<Product> result = ProductQuery.builder().available(true).build().apply(products);
+        assertEquals(CATALOG, products);
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    public void needsInMemoryPass_onlyForWhatFirestoreCannotServe() {
+        assertFalse(ProductQuery.builder().category("Shampoo").available(true)
+                .sortBy(ProductQuery.SortField.NAME, false).limit(10).build().needsInMemoryPass());
+        assertFalse(ProductQuery.builder().priceBetween(1, 2)
+                .sortBy(ProductQuery.SortField.PRICE, true).build().needsInMemoryPass());
+        // Firestore must order by the range field first
+        assertTrue(ProductQuery.builder().priceBetween(1, 2)
+                .sortBy(ProductQuery.SortField.NAME, false).build().needsInMemoryPass());
+        assertTrue(ProductQuery.builder().minStock(1).build().needsInMemoryPass());
+        assertTrue(ProductQuery.builder().text("clear").build().needsInMemoryPass());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void build_rejectsInvertedPriceRange() {
+        ProductQuery.builder().priceBetween(10, 5).build();
+    }
+
+    @Test
+    public void mapper_writesAvailabilityUnderQueriedField() throws NoSuchMethodException {
+        // The mapper only reads @PropertyName from public accessors
+        assertEquals(Product.FIELD_IS_AVAILABLE,
+                Product.class.getMethod("isAvailable").getAnnotation(PropertyName.class).value());
+        assertEquals(Product.FIELD_IS_AVAILABLE,
+                Product.class.getMethod("setAvailable", boolean.class).getAnnotation(PropertyName.class).value());
+    }
+
+    @Test
+    public void indexes_coverEveryEqualityFieldAndSortOrder() throws IOException {
+        Set<String> declared = declaredIndexes();
+        String[] equalityFields = {Product.FIELD_CATEGORY, Product.FIELD_BRAND, Product.FIELD_IS_AVAILABLE};
+        String[] sortFields = {Product.FIELD_NAME, Product.FIELD_PRICE};
+        for (String equality : equalityFields) {
+            for (String sort : sortFields) {
+                for (String order : new String[]{"ASCENDING", "DESCENDING"}) {
+                    String index = equality + " ASCENDING, " + sort + " " + order;
+                    assertTrue("Missing index " + index, declared.contains(index));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void indexes_onlyNameProductFields() throws IOException {
+        Set<String> fields = new HashSet<>(Arrays.asList(Product.FIELD_CATEGORY, Product.FIELD_BRAND,
+                Product.FIELD_IS_AVAILABLE, Product.FIELD_NAME, Product.FIELD_PRICE));
+        for (String index : declaredIndexes()) {
+            for (String field : index.split(", ")) {
+                String path = field.substring(0, field.indexOf(' '));
+                assertTrue("Index on unknown field " + path, fields.contains(path));
+            }
+        }
+    }
+
+    /**
+     * @return Each composite index in firestore.indexes.json as "field ORDER, field ORDER"
+     */
+    private static Set<String> declaredIndexes() throws IOException {
+        // Unit tests run from the module directory; the file is at the project root
+        File file = new File("firestore.indexes.json");
+        if (!file.exists()) {
+            file = new File("../firestore.indexes.json");
+        }
+        String json = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+        Set<String> indexes = new HashSet<>();
+        Matcher index = INDEX_FIELDS.matcher(json);
+        while (index.find()) {
+            List<String> fields = new ArrayList<>();
+            Matcher field = INDEX_FIELD.matcher(index.group(1));
+            while (field.find()) {
+                fields.add(field.group(1) + " " + field.group(2));
+            }
+            indexes.add(String.join(", ", fields));
+        }
+        assertFalse("No indexes found in " + file, indexes.isEmpty());
+        return Collections.unmodifiableSet(indexes);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.hairstyle_consultant.services;
+
+import com.example.hairstyle_consultant.models.Product;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class ProductSearchIndexTest {
+    private static final Product CLEAR = new Product("1", "Dầu Gội Trị Gàu Clear", "Sạch gàu, mát lạnh da đầu",
+            95000, 10, "Shampoo", "Clear", null, true);
+    private static final Product TRESEMME = new Product("2", "Dầu Xả Phục Hồi TRESemmé", "Repair cho tóc hư tổn",
+            120000, 10, "Conditioner", "TRESemmé", null, true);
+    private static final Product PHILIPS = new Product("3", "Máy Sấy Tóc Philips", "Sấy khô nhanh",
+            450000, 3, "Tools", "Philips", null, true);
+    private static final Product DOVE = new Product("4", "Dove Intense Repair Shampoo", "Repair for damaged hair",
+            110000, 0, "Shampoo", "Dove", null, true);
+
+    private ProductSearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new ProductSearchIndex();
+        for (Product product : Arrays.asList(CLEAR, TRESEMME, PHILIPS, DOVE)) {
+            index.put(product);
+        }
+    }
+
+    @Test
+    public void search_ignoresCaseAndDiacritics() {
+        assertEquals(Collections.singletonList(CLEAR), index.search("DẦU GỘI trị gàu", 10));
+        assertEquals(Collections.singletonList(CLEAR), index.search("dau goi tri gau", 10));
+    }
+
+    @Test
+    public void search_requiresEveryTerm() {
+        assertEquals(2, index.search("dau", 10).size());
+        assertEquals(Collections.singletonList(TRESEMME), index.search("dau xa", 10));
+        assertTrue(index.search("dau philips", 10).isEmpty());
+    }
+
+    @Test
+    public void search_lastTermMatchesAsPrefix() {
+        assertEquals(Collections.singletonList(PHILIPS), index.search("may sa", 10));
+        assertEquals(Collections.singletonList(PHILIPS), index.search("phil", 10));
+    }
+
+    @Test
+    public void search_onlyLastTermMatchesAsPrefix() {
+        assertTrue(index.search("phil may", 10).isEmpty());
+    }
+
+    @Test
+    public void search_fullTermOutranksPrefixCompletion() {
+        // "say" is a whole word for the dryer; "sach" in Clear's description only completes "sa"
+        List<Product> results = index.search("sa", 10);
+        assertEquals(Arrays.asList(PHILIPS, CLEAR), results);
+    }
+
+    @Test
+    public void search_nameOutranksDescription() {
+        assertEquals(Arrays.asList(DOVE, TRESEMME), index.search("repair", 10));
+    }
+
+    @Test
+    public void search_respectsLimit() {
+        assertEquals(Collections.singletonList(DOVE), index.search("repair", 1));
+        assertTrue(index.search("repair", 0).isEmpty());
+    }
+
+    @Test
+    public void put_replacesPreviousVersion() {
+        index.put(new Product("3", "Máy Duỗi Tóc Philips", "", 500000, 1, "Tools", "Philips", null, true));
+        assertTrue(index.search("say", 10).isEmpty());
+        assertEquals(1, index.search("duoi", 10).size());
+        assertEquals(4, index.size());
+    }
+
+    @Test
+    public void remove_dropsProductFromResults() {
+        index.remove("4");
+        assertTrue(index.search("dove", 10).isEmpty());
+        assertEquals(Collections.singletonList(TRESEMME), index.search("repair", 10));
+        assertEquals(3, index.size());
+    }
+
+    @Test
+    public void rank_bm25PrefersProductWithMoreWeightOnTerm() {
+        // Shampoo in Dove's name and category, only in Clear's category
+        assertEquals(Arrays.asList(DOVE, CLEAR), index.rank(terms("shampoo", 1f), 10));
+    }
+
+    @Test
+    public void rank_queryWeightsDecideOrder() {
+        Map<String, Float> query = terms("shampoo", 0.1f);
+        query.put("conditioner", 1f);
+        assertEquals(TRESEMME, index.rank(query, 10).get(0));
+    }
+
+    @Test
+    public void rank_matchesAnyTerm() {
+        Map<String, Float> query = terms("repair", 1f);
+        query.put("philips", 1f);
+        query.put("unknown", 1f);
+        assertEquals(new HashSet<>(Arrays.asList(DOVE, TRESEMME, PHILIPS)), new HashSet<>(index.rank(query, 10)));
+    }
+
+    @Test
+    public void rank_sumsMatchedTerms() {
+        // Clear matches both terms, TRESemmé only "dau"
+        Map<String, Float> query = terms("dau", 1f);
+        query.put("clear", 1f);
+        assertEquals(CLEAR, index.rank(query, 10).get(0));
+        assertTrue(index.rank(terms("nothing", 1f), 10).isEmpty());
+    }
+
+    private static Map<String, Float> terms(String term, float weight) {
+        Map<String, Float> query = new HashMap<>();
+        query.put(term, weight);
+        return query;
+    }
+}
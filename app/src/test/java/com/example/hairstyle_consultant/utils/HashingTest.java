@@ -0,0 +1,25 @@
+package com.example.hairstyle_consultant.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HashingTest {
+    @Test
+    public void sha1Hex_matchesKnownDigest() {
+        assertEquals("a9993e364706816aba3e25717850c26c9cd0d89d", Hashing.sha1Hex("abc"));
+    }
+
+    @Test
+    public void sha256Hex_matchesKnownDigest() {
+        assertEquals("ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad", Hashing.sha256Hex("abc"));
+    }
+
+    @Test
+    public void hex_keepsLeadingZerosAndHashesUtf8() {
+        // The digest of "" starts with a zero byte
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", Hashing.sha256Hex(""));
+        assertNotEquals(Hashing.sha1Hex("Dầu"), Hashing.sha1Hex("Dau"));
+        assertEquals(40, Hashing.sha1Hex("Dầu").length());
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.hairstyle_consultant.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TextNormalizerTest {
+    @Test
+    public void fold_removesVietnameseDiacritics() {
+        assertEquals("dau goi tri gau", TextNormalizer.fold("Dầu Gội Trị Gàu"));
+        assertEquals("uu dai hu ton", TextNormalizer.fold("Ưu đãi hư tổn"));
+    }
+
+    @Test
+    public void fold_mapsDStroke() {
+        // "đ" has no canonical decomposition, in either case
+        assertEquals("dac biet", TextNormalizer.fold("ĐẶC BIỆT"));
+        assertEquals("do", TextNormalizer.fold("đỏ"));
+    }
+
+    @Test
+    public void fold_sameForEveryCaseAndAccentVariant() {
+        String expected = TextNormalizer.fold("dau goi");
+        assertEquals(expected, TextNormalizer.fold("Dầu Gội"));
+        assertEquals(expected, TextNormalizer.fold("DẦU GỘI"));
+        assertEquals(expected, TextNormalizer.fold("dâu gôi"));
+    }
+
+    @Test
+    public void fold_nullAndEmpty() {
+        assertEquals("", TextNormalizer.fold(null));
+        assertEquals("", TextNormalizer.fold(""));
+    }
+
+    @Test
+    public void tokenize_splitsOnNonAlphanumerics() {
+        assertEquals(Arrays.asList("may", "say", "toc", "2000w", "gia", "re"),
+                TextNormalizer.tokenize("Máy sấy tóc, 2000W -- giá rẻ!"));
+    }
+
+    @Test
+    public void tokenize_keepsOrderAndDuplicates() {
+        assertEquals(Arrays.asList("toc", "kho", "toc"), TextNormalizer.tokenize("tóc khô/tóc"));
+    }
+
+    @Test
+    public void tokenize_blankInput() {
+        assertEquals(Collections.emptyList(), TextNormalizer.tokenize(null));
+        assertEquals(Collections.emptyList(), TextNormalizer.tokenize("  ?! ..."));
+    }
+}